@@ -0,0 +1,17 @@
+package com.kepler;
+
+/**
+ * 通道失效(如心跳超时, 连接断开), 请求可能已发送至服务端
+ * 
+ * @author kim
+ * 
+ * 2016年4月17日
+ */
+public class KeplerChannelException extends KeplerLocalException {
+
+	private static final long serialVersionUID = 1L;
+
+	public KeplerChannelException(String e) {
+		super(e);
+	}
+}
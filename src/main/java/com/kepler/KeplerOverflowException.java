@@ -0,0 +1,17 @@
+package com.kepler;
+
+/**
+ * 通道在途请求达到上限(排队已满或等待超时), 请求未发送
+ * 
+ * @author kim
+ * 
+ * 2016年4月18日
+ */
+public class KeplerOverflowException extends KeplerLocalException {
+
+	private static final long serialVersionUID = 1L;
+
+	public KeplerOverflowException(String e) {
+		super(e);
+	}
+}
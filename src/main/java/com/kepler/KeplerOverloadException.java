@@ -0,0 +1,17 @@
+package com.kepler;
+
+/**
+ * 服务端过载(如隔离线程池已满), 请求未执行可重试
+ * 
+ * @author kim
+ * 
+ * 2016年4月15日
+ */
+public class KeplerOverloadException extends KeplerRemoteException {
+
+	private static final long serialVersionUID = 1L;
+
+	public KeplerOverloadException(String e) {
+		super(e);
+	}
+}
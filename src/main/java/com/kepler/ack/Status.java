@@ -5,6 +5,6 @@ package com.kepler.ack;
  */
 public enum Status {
 
-	// 完成, 等待, 超时, 取消, 异常
-	DONE, WAITING, TIMEOUT, CANCEL, EXCEPTION
+	// 完成, 等待, 超时, 取消, 异常, 过载(在途请求达到上限, 未发送)
+	DONE, WAITING, TIMEOUT, CANCEL, EXCEPTION, OVERLOAD
 }
@@ -1,6 +1,7 @@
 package com.kepler.ack.impl;
 
 import com.kepler.KeplerLocalException;
+import com.kepler.KeplerOverflowException;
 import com.kepler.KeplerRemoteException;
 import com.kepler.KeplerTimeoutException;
 import com.kepler.ack.Ack;
@@ -8,29 +9,36 @@ import com.kepler.ack.Status;
 import com.kepler.admin.transfer.Collector;
 import com.kepler.config.Profile;
 import com.kepler.config.PropertiesUtils;
+import com.kepler.header.impl.DeadlineContext;
 import com.kepler.host.Host;
 import com.kepler.protocol.Request;
 import com.kepler.protocol.Response;
 import com.kepler.service.Quiet;
+import com.kepler.thread.FutureListener;
+import com.kepler.thread.ListenableFuture;
+import io.netty.util.Timeout;
+
 import org.springframework.util.Assert;
 
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.concurrent.Future;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Warning: 监视器使用this避免创建无用对象(协商)
  * 
  * @author kim 2015年7月23日
  */
-public class AckFuture implements Future<Object>, Ack {
+public class AckFuture implements ListenableFuture<Object>, Ack {
 
 	public static final String TIMEOUT_KEY = AckFuture.class.getName().toLowerCase() + ".timeout";
 
 	/**
 	 * 默认最大超时
 	 */
-	private static final int TIMEOUT_DEF = PropertiesUtils.get(AckFuture.TIMEOUT_KEY, 60000);
+	public static final int TIMEOUT_DEF = PropertiesUtils.get(AckFuture.TIMEOUT_KEY, 60000);
 
 	/**
 	 * ACK创建时间
@@ -84,6 +92,21 @@ public class AckFuture implements Future<Object>, Ack {
 	 */
 	volatile private boolean interrupt;
 
+	/**
+	 * 时间轮到期任务(Response后取消)
+	 */
+	volatile private Timeout expiration;
+
+	/**
+	 * 是否已收集(仅收集一次)
+	 */
+	private final AtomicBoolean collected = new AtomicBoolean();
+
+	/**
+	 * 完成回调(延迟创建, 由this保护), 完成后置为Null
+	 */
+	private List<FutureListener> listeners;
+
 	public AckFuture(Collector collector, Host local, Host target, Request request, Profile profile, Quiet quiet) {
 		super();
 		this.local = local;
@@ -91,8 +114,8 @@ public class AckFuture implements Future<Object>, Ack {
 		this.target = target;
 		this.request = request;
 		this.collector = collector;
-		// 计算Timeout
-		this.deadline = PropertiesUtils.profile(profile.profile(request.service()), AckFuture.TIMEOUT_KEY, AckFuture.TIMEOUT_DEF);
+		// 计算Timeout, 如果Header指定剩余时间(嵌套调用)则取较小值(至少1毫秒, Wait(0)将永久等待)
+		this.deadline = Math.max(1, Math.min(PropertiesUtils.profile(profile.profile(request.service()), AckFuture.TIMEOUT_KEY, AckFuture.TIMEOUT_DEF), DeadlineContext.remain(request.headers())));
 	}
 
 	/**
@@ -185,37 +208,160 @@ public class AckFuture implements Future<Object>, Ack {
 		return this.request;
 	}
 
+	/**
+	 * 超时上限(毫秒)
+	 * 
+	 * @return
+	 */
+	public long deadline() {
+		return this.deadline;
+	}
+
+	/**
+	 * 绑定时间轮到期任务
+	 * 
+	 * @param expiration
+	 * @return
+	 */
+	public AckFuture expiration(Timeout expiration) {
+		this.expiration = expiration;
+		return this;
+	}
+
+	/**
+	 * 到期(由时间轮触发, 无需等待线程), 标记超时并收集
+	 * 
+	 * @return 是否由本次调用标记为超时
+	 */
+	public boolean expire() {
+		if (!this.terminate(Status.TIMEOUT, false)) {
+			return false;
+		}
+		this.collect();
+		return true;
+	}
+
+	/**
+	 * 在途请求达到上限(未发送), 标记过载并收集
+	 * 
+	 * @return
+	 */
+	public KeplerOverflowException overload() {
+		this.terminate(Status.OVERLOAD, false);
+		Timeout expiration = this.expiration;
+		if (expiration != null) {
+			expiration.cancel();
+		}
+		this.collect();
+		return new KeplerOverflowException(this.message4request("overflow"));
+	}
+
+	public void listener(FutureListener listener) {
+		synchronized (this) {
+			// 尚未完成则注册
+			if (this.continued()) {
+				(this.listeners != null ? this.listeners : (this.listeners = new ArrayList<FutureListener>(2))).add(listener);
+				return;
+			}
+		}
+		// 已完成则立即回调
+		listener.complete(this);
+	}
+
+	/**
+	 * 终止状态转换(所有终止状态的唯一入口), 唤醒等待线程并在监视器外回调(仅一次)
+	 * 
+	 * @param status
+	 * @param force 是否允许覆盖非WAITING状态
+	 * @return 是否由本次调用终止
+	 */
+	private boolean terminate(Status status, boolean force) {
+		List<FutureListener> listeners;
+		synchronized (this) {
+			if (!this.terminate4lock(status, force)) {
+				return false;
+			}
+			listeners = this.listeners4complete();
+		}
+		this.complete(listeners);
+		return true;
+	}
+
+	/**
+	 * 终止状态转换(需持有this), 调用方负责获取并回调
+	 * 
+	 * @param status
+	 * @param force
+	 * @return
+	 */
+	private boolean terminate4lock(Status status, boolean force) {
+		if (!force && !Status.WAITING.equals(this.stauts)) {
+			return false;
+		}
+		this.stauts = status;
+		this.notifyAll();
+		return true;
+	}
+
+	/**
+	 * 获取并清空回调(需持有this)
+	 * 
+	 * @return
+	 */
+	private List<FutureListener> listeners4complete() {
+		List<FutureListener> listeners = this.listeners;
+		this.listeners = null;
+		return listeners;
+	}
+
+	/**
+	 * 在监视器外回调
+	 * 
+	 * @param listeners
+	 */
+	private void complete(List<FutureListener> listeners) {
+		if (listeners != null) {
+			for (FutureListener each : listeners) {
+				each.complete(this);
+			}
+		}
+	}
+
 	/**
 	 * Response callback
 	 * 
 	 * @param
 	 */
 	public void response(Response response) {
-		synchronized (this) {
-			this.response = response;
-			this.stauts = Status.DONE;
-			this.notifyAll();
+		this.response = response;
+		// 迟到的响应允许覆盖等待线程标记的超时
+		this.terminate(Status.DONE, true);
+		// 已响应, 取消到期任务
+		Timeout expiration = this.expiration;
+		if (expiration != null) {
+			expiration.cancel();
 		}
 	}
 
 	public boolean cancel(boolean interrupt) {
 		// 没有Done且没有Cancel则允许
 		if (!this.isDone() && this.isCancelled()) {
+			List<FutureListener> listeners;
 			synchronized (this) {
 				// Guard condition
 				if (this.isCancelled()) {
 					return false;
 				}
-				this.stauts = Status.CANCEL;
 				// 赋值并获取this.interrupt
 				this.interrupt = interrupt;
+				this.terminate4lock(Status.CANCEL, true);
 				if (this.interrupt) {
 					this.thread.interrupt();
-				} else {
-					this.notifyAll();
 				}
-				return true;
+				listeners = this.listeners4complete();
 			}
+			this.complete(listeners);
+			return true;
 		} else {
 			return false;
 		}
@@ -246,15 +392,21 @@ public class AckFuture implements Future<Object>, Ack {
 	}
 
 	private void get4wait(long timeout) throws InterruptedException {
-		synchronized (this) {
-			while (this.continued()) {
-				try {
-					this.wait(timeout);
-				} finally {
-					// 任意跳出Wait均计算超时
-					this.timeout(timeout);
+		List<FutureListener> listeners = null;
+		try {
+			synchronized (this) {
+				while (this.continued()) {
+					try {
+						this.wait(timeout);
+					} finally {
+						// 任意跳出Wait均计算超时, 由本次标记超时则获取回调
+						listeners = this.timeout(timeout) ? this.listeners4complete() : listeners;
+					}
 				}
 			}
+		} finally {
+			// 监视器外回调
+			this.complete(listeners);
 		}
 	}
 
@@ -264,6 +416,15 @@ public class AckFuture implements Future<Object>, Ack {
 			return this.checkInterrupt().checkTimeout().checkCancel().checkException().response.response();
 		} finally {
 			// 收集Response信息
+			this.collect();
+		}
+	}
+
+	/**
+	 * 收集, 多次Get或时间轮到期仅收集一次
+	 */
+	private void collect() {
+		if (this.collected.compareAndSet(false, true)) {
 			this.collector.collect(this);
 		}
 	}
@@ -278,15 +439,13 @@ public class AckFuture implements Future<Object>, Ack {
 	}
 
 	/**
-	 * 当前已消耗时间是否大于超时则标记
+	 * 当前已消耗时间是否大于超时则标记(需持有this)
 	 * 
 	 * @param timeout
-	 * @return
+	 * @return 是否由本次调用标记为超时
 	 */
-	private void timeout(long timeout) {
-		if (this.elapse() > timeout) {
-			this.stauts = Status.TIMEOUT;
-		}
+	private boolean timeout(long timeout) {
+		return this.elapse() > timeout && this.terminate4lock(Status.TIMEOUT, false);
 	}
 
 	/**
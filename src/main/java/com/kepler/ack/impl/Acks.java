@@ -0,0 +1,268 @@
+package com.kepler.ack.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import com.kepler.config.PropertiesUtils;
+
+/**
+ * 通道级等待ACK, 分段(Striped)开放寻址表(long -> AckFuture)
+ * 
+ * 1, ACK长度不超过8字节(如IncrGenerator)时直接转换为long, 无损
+ * 2, ACK长度超过8字节(如GuidGenerator)时折叠为long, 冲突时由原始ACK比较确定
+ * 3, 无需包装对象及Entry, Put/Del不产生额外分配
+ * 4, 指定上限时Put前需Acquire, Del/Drain时释放(FIFO等待)
+ * 
+ * @author kim
+ * 
+ * 2016年4月12日
+ */
+public class Acks {
+
+	/**
+	 * 分段数量(2的幂)
+	 */
+	private static final int STRIPES = Acks.power(PropertiesUtils.get(Acks.class.getName().toLowerCase() + ".stripes", 16));
+
+	/**
+	 * 单个分段初始容量(2的幂)
+	 */
+	private static final int CAPACITY = Acks.power(PropertiesUtils.get(Acks.class.getName().toLowerCase() + ".capacity", 16));
+
+	private final Segment[] segments = new Segment[Acks.STRIPES];
+
+	/**
+	 * 在途上限, 不限制则为Null
+	 */
+	private final Semaphore inflight;
+
+	/**
+	 * 最大排队数量
+	 */
+	private final int queue;
+
+	public Acks() {
+		this(0, 0);
+	}
+
+	/**
+	 * @param inflight 在途上限, 小于等于0则不限制
+	 * @param queue 达到上限时最大排队数量
+	 */
+	public Acks(int inflight, int queue) {
+		for (int index = 0; index < this.segments.length; index++) {
+			this.segments[index] = new Segment();
+		}
+		this.inflight = inflight > 0 ? new Semaphore(inflight, true) : null;
+		this.queue = queue;
+	}
+
+	/**
+	 * 获取在途许可(FIFO), 排队已满或等待超时则失败
+	 * 
+	 * @param timeout 最大等待(毫秒)
+	 * @return
+	 * @throws InterruptedException
+	 */
+	public boolean acquire(long timeout) throws InterruptedException {
+		if (this.inflight == null || this.inflight.tryAcquire()) {
+			return true;
+		}
+		return timeout > 0 && this.inflight.getQueueLength() < this.queue && this.inflight.tryAcquire(timeout, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * 释放未使用的许可(Acquire后未Put)
+	 */
+	public void release() {
+		this.release(1);
+	}
+
+	private void release(int permits) {
+		if (this.inflight != null && permits > 0) {
+			this.inflight.release(permits);
+		}
+	}
+
+	/**
+	 * 向上取整为2的幂
+	 * 
+	 * @param value
+	 * @return
+	 */
+	private static int power(int value) {
+		return value <= 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
+	}
+
+	/**
+	 * ACK转换为long
+	 * 
+	 * @param ack
+	 * @return
+	 */
+	public static long key(byte[] ack) {
+		long key = 0;
+		// 数值型ACK, 无损转换
+		if (ack.length <= 8) {
+			for (byte each : ack) {
+				key = key << 8 | (each & 0xff);
+			}
+			return key;
+		}
+		// 折叠
+		for (byte each : ack) {
+			key = key * 31 + each;
+		}
+		return key;
+	}
+
+	/**
+	 * 扰动(fmix64)
+	 * 
+	 * @param key
+	 * @return
+	 */
+	private static int hash(long key) {
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		key *= 0xc4ceb9fe1a85ec53L;
+		key ^= key >>> 33;
+		return (int) key;
+	}
+
+	private Segment segment(int hash) {
+		// 高位选择分段, 低位用于段内寻址
+		return this.segments[(hash >>> 24) & (Acks.STRIPES - 1)];
+	}
+
+	public AckFuture put(AckFuture future) {
+		long key = Acks.key(future.request().ack());
+		int hash = Acks.hash(key);
+		this.segment(hash).put(key, hash, future);
+		return future;
+	}
+
+	public AckFuture del(byte[] ack) {
+		long key = Acks.key(ack);
+		int hash = Acks.hash(key);
+		AckFuture future = this.segment(hash).del(key, hash, ack);
+		if (future != null) {
+			this.release(1);
+		}
+		return future;
+	}
+
+	/**
+	 * 移除全部(如通道关闭)
+	 * 
+	 * @return
+	 */
+	public List<AckFuture> drain() {
+		List<AckFuture> futures = new ArrayList<AckFuture>();
+		for (Segment each : this.segments) {
+			each.drain(futures);
+		}
+		this.release(futures.size());
+		return futures;
+	}
+
+	/**
+	 * 等待数量
+	 * 
+	 * @return
+	 */
+	public int size() {
+		int size = 0;
+		for (Segment each : this.segments) {
+			size += each.size;
+		}
+		return size;
+	}
+
+	private static class Segment {
+
+		private long[] keys = new long[Acks.CAPACITY];
+
+		private AckFuture[] futures = new AckFuture[Acks.CAPACITY];
+
+		volatile private int size;
+
+		public synchronized void put(long key, int hash, AckFuture future) {
+			// 负载因子0.5
+			if ((this.size + 1) << 1 > this.futures.length) {
+				this.resize();
+			}
+			this.insert(key, hash, future);
+			this.size++;
+		}
+
+		public synchronized AckFuture del(long key, int hash, byte[] ack) {
+			int mask = this.futures.length - 1;
+			for (int index = hash & mask; this.futures[index] != null; index = (index + 1) & mask) {
+				if (this.keys[index] == key && Arrays.equals(this.futures[index].request().ack(), ack)) {
+					AckFuture future = this.futures[index];
+					this.shift(index);
+					this.size--;
+					return future;
+				}
+			}
+			return null;
+		}
+
+		public synchronized void drain(List<AckFuture> futures) {
+			for (int index = 0; index < this.futures.length; index++) {
+				if (this.futures[index] != null) {
+					futures.add(this.futures[index]);
+					this.futures[index] = null;
+				}
+			}
+			this.size = 0;
+		}
+
+		private void insert(long key, int hash, AckFuture future) {
+			int mask = this.futures.length - 1;
+			int index = hash & mask;
+			while (this.futures[index] != null) {
+				index = (index + 1) & mask;
+			}
+			this.keys[index] = key;
+			this.futures[index] = future;
+		}
+
+		/**
+		 * 线性探测删除, 后续元素前移(无墓碑)
+		 * 
+		 * @param gap
+		 */
+		private void shift(int gap) {
+			int mask = this.futures.length - 1;
+			this.futures[gap] = null;
+			for (int index = (gap + 1) & mask; this.futures[index] != null; index = (index + 1) & mask) {
+				int ideal = Acks.hash(this.keys[index]) & mask;
+				// 理想位置不在(gap, index]区间内则前移
+				if (gap < index ? (ideal <= gap || ideal > index) : (ideal <= gap && ideal > index)) {
+					this.keys[gap] = this.keys[index];
+					this.futures[gap] = this.futures[index];
+					this.futures[index] = null;
+					gap = index;
+				}
+			}
+		}
+
+		private void resize() {
+			long[] keys = this.keys;
+			AckFuture[] futures = this.futures;
+			this.keys = new long[keys.length << 1];
+			this.futures = new AckFuture[futures.length << 1];
+			for (int index = 0; index < futures.length; index++) {
+				if (futures[index] != null) {
+					this.insert(keys[index], Acks.hash(keys[index]), futures[index]);
+				}
+			}
+		}
+	}
+}
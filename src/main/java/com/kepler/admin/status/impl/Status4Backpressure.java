@@ -0,0 +1,34 @@
+package com.kepler.admin.status.impl;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.kepler.admin.status.Status;
+import com.kepler.connection.Backpressure;
+
+/**
+ * 服务端背压状态
+ * 
+ * @author kim
+ * 
+ * 2016年4月16日
+ */
+public class Status4Backpressure implements Status {
+
+	private final Map<String, Object> status = new HashMap<String, Object>();
+
+	private final Backpressure backpressure;
+
+	public Status4Backpressure(Backpressure backpressure) {
+		super();
+		this.backpressure = backpressure;
+	}
+
+	@Override
+	public Map<String, Object> get() {
+		this.status.put("backpressure_queue", this.backpressure.queue());
+		this.status.put("backpressure_paused", this.backpressure.paused());
+		this.status.put("backpressure_rejected", this.backpressure.rejected());
+		return this.status;
+	}
+}
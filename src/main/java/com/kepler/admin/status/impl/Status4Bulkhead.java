@@ -0,0 +1,44 @@
+package com.kepler.admin.status.impl;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import com.kepler.admin.status.Status;
+import com.kepler.connection.Bulkheads;
+
+/**
+ * 服务隔离线程池状态
+ * 
+ * @author kim
+ * 
+ * 2016年4月15日
+ */
+public class Status4Bulkhead implements Status {
+
+	private final Map<String, Object> status = new HashMap<String, Object>();
+
+	private final Bulkheads bulkheads;
+
+	public Status4Bulkhead(Bulkheads bulkheads) {
+		super();
+		this.bulkheads = bulkheads;
+	}
+
+	@Override
+	public Map<String, Object> get() {
+		// 隔离名称 -> 线程池状态
+		Map<String, Map<String, Object>> bulkheads = new HashMap<String, Map<String, Object>>();
+		for (Map.Entry<String, ThreadPoolExecutor> each : this.bulkheads.bulkheads().entrySet()) {
+			Map<String, Object> current = new HashMap<String, Object>();
+			current.put("pool", each.getValue().getPoolSize());
+			current.put("queue", each.getValue().getQueue().size());
+			current.put("active", each.getValue().getActiveCount());
+			current.put("maximum", each.getValue().getMaximumPoolSize());
+			current.put("task_completed", each.getValue().getCompletedTaskCount());
+			bulkheads.put(each.getKey(), current);
+		}
+		this.status.put("bulkhead", bulkheads);
+		return this.status;
+	}
+}
@@ -0,0 +1,44 @@
+package com.kepler.admin.status.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.kepler.admin.status.Status;
+import com.kepler.channel.ChannelContext;
+import com.kepler.channel.ChannelInvoker;
+
+/**
+ * 连接池通道状态
+ * 
+ * @author kim
+ *
+ * 2016年4月6日
+ */
+public class Status4Channel implements Status {
+
+	private final Map<String, Object> status = new HashMap<String, Object>();
+
+	private final ChannelContext channels;
+
+	public Status4Channel(ChannelContext channels) {
+		super();
+		this.channels = channels;
+	}
+
+	@Override
+	public Map<String, Object> get() {
+		// Host -> 每个通道等待ACK数量
+		Map<String, List<Integer>> pending = new HashMap<String, List<Integer>>();
+		for (ChannelInvoker each : this.channels.channels()) {
+			List<Integer> current = pending.get(each.host().address());
+			if (current == null) {
+				pending.put(each.host().address(), current = new ArrayList<Integer>());
+			}
+			current.add(each.pending());
+		}
+		this.status.put("channel_pending", pending);
+		return this.status;
+	}
+}
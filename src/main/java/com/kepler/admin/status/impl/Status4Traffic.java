@@ -2,9 +2,11 @@ package com.kepler.admin.status.impl;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import com.kepler.admin.status.Status;
 import com.kepler.traffic.Traffic;
+import com.kepler.traffic.Traffic.Batch;
 
 /**
  * @author kim 2016年1月7日
@@ -24,6 +26,20 @@ public class Status4Traffic implements Status {
 	public Map<String, Object> get() {
 		this.status.put("traffic_input", this.traffic.getInputAndReset());
 		this.status.put("traffic_output", this.traffic.getOutputAndReset());
+		// 压缩比(压缩后/压缩前), 未压缩则为1
+		long before = this.traffic.getCompressBeforeAndReset();
+		long after = this.traffic.getCompressAfterAndReset();
+		this.status.put("traffic_compress_ratio", before != 0 ? (double) after / before : 1);
+		this.status.put("traffic_compress_time", TimeUnit.NANOSECONDS.toMillis(this.traffic.getCompressTimeAndReset()));
+		this.status.put("traffic_decompress_time", TimeUnit.NANOSECONDS.toMillis(this.traffic.getDecompressTimeAndReset()));
+		// 批量发送次数, 平均批量大小及各原因次数
+		long batch = this.traffic.getBatchAndReset();
+		long messages = this.traffic.getBatchMessagesAndReset();
+		this.status.put("traffic_batch", batch);
+		this.status.put("traffic_batch_size", batch != 0 ? (double) messages / batch : 0);
+		for (Batch reason : Batch.values()) {
+			this.status.put("traffic_batch_" + reason.toString().toLowerCase(), this.traffic.getBatchAndReset(reason));
+		}
 		return this.status;
 	}
 }
@@ -42,5 +42,12 @@ public interface Transfer extends Serializable {
 	 */
 	public long exception();
 
+	/**
+	 * 过载数量(本地在途请求达到上限)
+	 * 
+	 * @return
+	 */
+	public long overload();
+
 	public void reset();
 }
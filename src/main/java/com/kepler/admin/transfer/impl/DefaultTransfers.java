@@ -127,7 +127,7 @@ public class DefaultTransfers implements Transfers {
 	public Transfer put(Host local, Host target, Status status, long rtt) {
 		WriteableTransfer transfer = WriteableTransfer.class.cast(this.transfers.get(local, target));
 		// 不存在则创建
-		this.transfers.put(local, target, (transfer = (transfer != null ? transfer : new WriteableTransfer(local, target))).touch().rtt(rtt).timeout(status).exception(status));
+		this.transfers.put(local, target, (transfer = (transfer != null ? transfer : new WriteableTransfer(local, target))).touch().rtt(rtt).timeout(status).exception(status).overload(status));
 		return transfer;
 	}
 
@@ -145,6 +145,8 @@ public class DefaultTransfers implements Transfers {
 
 		private final AtomicLong exception = new AtomicLong();
 
+		private final AtomicLong overload = new AtomicLong();
+
 		private final Host local;
 
 		private final Host target;
@@ -182,6 +184,10 @@ public class DefaultTransfers implements Transfers {
 			return this.exception.get();
 		}
 
+		public long overload() {
+			return this.overload.get();
+		}
+
 		public WriteableTransfer touch() {
 			this.total.incrementAndGet();
 			return this;
@@ -206,11 +212,19 @@ public class DefaultTransfers implements Transfers {
 			return this;
 		}
 
+		public WriteableTransfer overload(Status status) {
+			if (status.equals(Status.OVERLOAD)) {
+				this.overload.incrementAndGet();
+			}
+			return this;
+		}
+
 		public void reset() {
 			this.rtt.set(0);
 			this.total.set(0);
 			this.timeout.set(0);
 			this.exception.set(0);
+			this.overload.set(0);
 		}
 
 		/**
@@ -1,5 +1,7 @@
 package com.kepler.channel;
 
+import java.util.Collection;
+
 import com.kepler.host.Host;
 
 /**
@@ -8,7 +10,7 @@ import com.kepler.host.Host;
 public interface ChannelContext {
 
 	/**
-	 * 获取指定Host的ChannelInvoker
+	 * 获取指定Host的ChannelInvoker(等待ACK最少)
 	 * 
 	 * @param host
 	 * @return
@@ -16,15 +18,24 @@ public interface ChannelContext {
 	public ChannelInvoker get(Host host);
 
 	/**
-	 * 删除指定Host的ChannelInvoker
+	 * 删除指定Host的所有ChannelInvoker
 	 * 
 	 * @param host
 	 * @return
 	 */
-	public ChannelInvoker del(Host host);
+	public Collection<ChannelInvoker> del(Host host);
 
 	/**
-	 * 注册指定Host的ChannelInvoker
+	 * 删除指定Host的指定ChannelInvoker, 其他ChannelInvoker保持不变
+	 * 
+	 * @param host
+	 * @param invoker
+	 * @return 不存在则返回Null
+	 */
+	public ChannelInvoker del(Host host, ChannelInvoker invoker);
+
+	/**
+	 * 注册指定Host的ChannelInvoker(加入连接池)
 	 * 
 	 * @param host
 	 * @param invoker
@@ -39,4 +50,19 @@ public interface ChannelContext {
 	 * @return
 	 */
 	public boolean contain(Host host);
+
+	/**
+	 * 指定Host已注册ChannelInvoker数量
+	 * 
+	 * @param host
+	 * @return
+	 */
+	public int size(Host host);
+
+	/**
+	 * 所有已注册ChannelInvoker(快照)
+	 * 
+	 * @return
+	 */
+	public Collection<ChannelInvoker> channels();
 }
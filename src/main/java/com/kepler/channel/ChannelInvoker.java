@@ -15,6 +15,13 @@ public interface ChannelInvoker extends Invoker {
 	 */
 	public Host host();
 
+	/**
+	 * 等待ACK数量
+	 * 
+	 * @return
+	 */
+	public int pending();
+
 	/**
 	 * 关闭通道
 	 */
@@ -1,7 +1,13 @@
 package com.kepler.channel.impl;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.kepler.KeplerRoutingException;
 import com.kepler.channel.ChannelContext;
@@ -11,13 +17,15 @@ import com.kepler.host.HostLocks;
 import com.kepler.host.impl.SegmentLocks;
 
 /**
- * Host - 通道映射
+ * Host - 通道映射(连接池)
  * 
  * @author kim 2015年7月9日
  */
 public class DefaultChannelContext implements ChannelContext {
 
-	private final Map<Host, ChannelInvoker> channels = new HashMap<Host, ChannelInvoker>();
+	private static final ChannelInvoker[] EMPTY = new ChannelInvoker[] {};
+
+	private final Map<Host, Channels> channels = new ConcurrentHashMap<Host, Channels>();
 
 	private final HostLocks lock = new SegmentLocks();
 
@@ -39,32 +47,121 @@ public class DefaultChannelContext implements ChannelContext {
 	 * For Spring
 	 */
 	public void destroy() {
-		for (ChannelInvoker invoker : this.channels.values()) {
+		for (ChannelInvoker invoker : this.channels()) {
 			// 释放所有ChannelInvoker资源
 			invoker.releaseAtOnce();
 		}
 	}
 
 	public ChannelInvoker get(Host host) {
-		return this.valid(host, this.channels.get(host));
+		Channels channels = this.channels.get(host);
+		return this.valid(host, channels != null ? channels.select() : null);
 	}
 
-	public ChannelInvoker del(Host host) {
+	public Collection<ChannelInvoker> del(Host host) {
 		synchronized (this.lock.get(host)) {
-			return this.channels.remove(host);
+			Channels channels = this.channels.remove(host);
+			return channels != null ? Arrays.asList(channels.invokers) : Collections.<ChannelInvoker> emptyList();
+		}
+	}
+
+	public ChannelInvoker del(Host host, ChannelInvoker invoker) {
+		synchronized (this.lock.get(host)) {
+			Channels channels = this.channels.get(host);
+			if (channels == null || !channels.remove(invoker)) {
+				return null;
+			}
+			// 连接池为空则移除Host
+			if (channels.size() == 0) {
+				this.channels.remove(host);
+			}
+			return invoker;
 		}
 	}
 
 	public ChannelInvoker put(Host host, ChannelInvoker invoker) {
 		synchronized (this.lock.get(host)) {
-			this.channels.put(host, invoker);
+			Channels channels = this.channels.get(host);
+			if (channels == null) {
+				this.channels.put(host, channels = new Channels());
+			}
+			channels.add(invoker);
 		}
 		return invoker;
 	}
 
 	public boolean contain(Host host) {
-		synchronized (this.lock.get(host)) {
-			return this.channels.containsKey(host);
+		return this.channels.containsKey(host);
+	}
+
+	public int size(Host host) {
+		Channels channels = this.channels.get(host);
+		return channels != null ? channels.size() : 0;
+	}
+
+	public Collection<ChannelInvoker> channels() {
+		List<ChannelInvoker> invokers = new ArrayList<ChannelInvoker>();
+		for (Channels each : this.channels.values()) {
+			invokers.addAll(Arrays.asList(each.invokers));
+		}
+		return invokers;
+	}
+
+	/**
+	 * 单个Host连接池, 写时复制(读多写少)
+	 * 
+	 * @author kim
+	 * 
+	 * 2016年4月6日
+	 */
+	private class Channels {
+
+		/**
+		 * 轮转起始位置, 等待ACK数量相同时分散至不同通道
+		 */
+		private final AtomicInteger next = new AtomicInteger();
+
+		volatile private ChannelInvoker[] invokers = DefaultChannelContext.EMPTY;
+
+		public void add(ChannelInvoker invoker) {
+			ChannelInvoker[] invokers = Arrays.copyOf(this.invokers, this.invokers.length + 1);
+			invokers[invokers.length - 1] = invoker;
+			this.invokers = invokers;
+		}
+
+		public boolean remove(ChannelInvoker invoker) {
+			List<ChannelInvoker> invokers = new ArrayList<ChannelInvoker>(Arrays.asList(this.invokers));
+			if (invokers.remove(invoker)) {
+				this.invokers = invokers.toArray(new ChannelInvoker[invokers.size()]);
+				return true;
+			}
+			return false;
+		}
+
+		public int size() {
+			return this.invokers.length;
+		}
+
+		/**
+		 * 选择等待ACK最少的通道
+		 * 
+		 * @return
+		 */
+		public ChannelInvoker select() {
+			// 快照
+			ChannelInvoker[] invokers = this.invokers;
+			if (invokers.length == 0) {
+				return null;
+			}
+			int offset = this.next.getAndIncrement() & Integer.MAX_VALUE;
+			ChannelInvoker selected = invokers[offset % invokers.length];
+			for (int index = 1; index < invokers.length; index++) {
+				ChannelInvoker current = invokers[(offset + index) % invokers.length];
+				if (current.pending() < selected.pending()) {
+					selected = current;
+				}
+			}
+			return selected;
 		}
 	}
 }
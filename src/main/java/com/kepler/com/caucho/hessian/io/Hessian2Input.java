@@ -215,6 +215,12 @@ public class Hessian2Input
     _is = is;
     
     reset();
+
+    // discard read-ahead data left by a previous stream when reused
+    _offset = 0;
+    _length = 0;
+    _isLastChunk = false;
+    _chunkLength = 0;
   }
 
   public void initPacket(InputStream is)
@@ -0,0 +1,50 @@
+package com.kepler.connection;
+
+import io.netty.channel.Channel;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 服务端背压, 线程池饱和时暂停通道读取(AutoRead), 而不是在IO线程中执行业务(CallerRunsPolicy)
+ * 
+ * @author kim
+ * 
+ * 2016年4月16日
+ */
+public interface Backpressure {
+
+	/**
+	 * 提交任务(IO线程), 超过高水位时暂停通道读取
+	 * 
+	 * @param channel 任务来源通道
+	 * @param task
+	 * @throws RejectedExecutionException 线程池已满(或开启饱和拒绝), 任务未提交
+	 */
+	public void execute(Channel channel, Runnable task) throws RejectedExecutionException;
+
+	/**
+	 * 任务完成, 低于低水位时恢复已暂停通道
+	 */
+	public void release();
+
+	/**
+	 * 已暂停通道数量
+	 * 
+	 * @return
+	 */
+	public int paused();
+
+	/**
+	 * 当前队列深度
+	 * 
+	 * @return
+	 */
+	public int queue();
+
+	/**
+	 * 累计拒绝数量
+	 * 
+	 * @return
+	 */
+	public long rejected();
+}
@@ -0,0 +1,31 @@
+package com.kepler.connection;
+
+import java.util.Map;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import com.kepler.protocol.Request;
+
+/**
+ * 服务隔离(每个Service或Method独立线程池), 避免慢服务拖垮所有服务
+ * 
+ * @author kim
+ * 
+ * 2016年4月15日
+ */
+public interface Bulkheads {
+
+	/**
+	 * 获取Request对应隔离线程池, 线程池已满时Execute抛出RejectedExecutionException
+	 * 
+	 * @param request
+	 * @return 未开启隔离则返回Null(使用共享线程池)
+	 */
+	public ThreadPoolExecutor get(Request request);
+
+	/**
+	 * 已创建隔离线程池
+	 * 
+	 * @return 名称 - 线程池
+	 */
+	public Map<String, ThreadPoolExecutor> bulkheads();
+}
@@ -1,15 +1,35 @@
 package com.kepler.connection;
 
+import io.netty.util.Timer;
+
 import com.kepler.host.Host;
 
 /**
- * 连接器(队列)
+ * 连接器(延迟重连)
  * 
  * @author kim 2015年7月10日
  */
 public interface Connects {
 
-	public Host get() throws Exception;
+	/**
+	 * 绑定重连执行(Connect初始化时绑定)
+	 * 
+	 * @param connect
+	 * @param timer 调度(不占用独立线程)
+	 */
+	public void bind(Connect connect, Timer timer);
 
+	/**
+	 * 延迟重连(同一Host尚未执行的重连仅保留一次)
+	 * 
+	 * @param host
+	 */
 	public void put(Host host);
+
+	/**
+	 * 连接成功, 重置延迟
+	 * 
+	 * @param host
+	 */
+	public void reset(Host host);
 }
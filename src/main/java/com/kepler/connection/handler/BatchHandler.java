@@ -0,0 +1,300 @@
+package com.kepler.connection.handler;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.ScheduledFuture;
+
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.kepler.config.PropertiesUtils;
+import com.kepler.connection.impl.ExceptionListener;
+import com.kepler.traffic.Traffic;
+import com.kepler.traffic.Traffic.Batch;
+
+/**
+ * 批量发送, 每个通道独立(非Sharable)
+ * 
+ * 1, 批量帧: 黏包长度 + BATCH(占用序列化策略字节) + 完整帧(黏包长度 + 序列化策略 + 数据) * N
+ * 2, Outbound: 小于阀值的已编码帧在窗口内合并, 达到消息数量/字节/窗口到期时发送(窗口为0则在上游Flush时发送)
+ * 3, Inbound: 拆分批量帧, 逐帧交由后续Handler解码
+ * 4, 开启前需确认对端已支持拆分批量帧
+ * 
+ * @author kim
+ * 
+ * 2016年4月18日
+ */
+public class BatchHandler extends ChannelDuplexHandler {
+
+	/**
+	 * 是否开启批量发送
+	 */
+	public static final boolean ENABLED = PropertiesUtils.get(BatchHandler.class.getName().toLowerCase() + ".enabled", false);
+
+	/**
+	 * 合并窗口(微秒), 0则在上游Flush时发送
+	 */
+	private static final long WINDOW = Math.max(0, PropertiesUtils.get(BatchHandler.class.getName().toLowerCase() + ".window", 100L));
+
+	/**
+	 * 每批最大消息数量
+	 */
+	private static final int MESSAGES = Math.max(2, PropertiesUtils.get(BatchHandler.class.getName().toLowerCase() + ".messages", 32));
+
+	/**
+	 * 每批最大字节(不超过黏包可表示长度, 含BATCH标记)
+	 */
+	private static final int BYTES = Math.min(CodecHeader.MAX - 1, PropertiesUtils.get(BatchHandler.class.getName().toLowerCase() + ".bytes", 0x10000));
+
+	/**
+	 * 允许合并的单帧最大字节
+	 */
+	private static final int THRESHOLD = PropertiesUtils.get(BatchHandler.class.getName().toLowerCase() + ".threshold", 0x400);
+
+	/**
+	 * 批量帧标记(序列化策略保留值)
+	 */
+	private static final byte BATCH = 0x7E;
+
+	private static final Log LOGGER = LogFactory.getLog(BatchHandler.class);
+
+	private final List<ChannelPromise> promises = new ArrayList<ChannelPromise>();
+
+	private final List<ByteBuf> frames = new ArrayList<ByteBuf>();
+
+	private final Runnable task = new WindowTask();
+
+	private final Traffic traffic;
+
+	private ChannelHandlerContext ctx;
+
+	private ScheduledFuture<?> window;
+
+	/**
+	 * 待合并字节
+	 */
+	private int bytes;
+
+	/**
+	 * 是否存在被推迟的Flush
+	 */
+	private boolean flush;
+
+	public BatchHandler(Traffic traffic) {
+		super();
+		this.traffic = traffic;
+	}
+
+	public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+		this.ctx = ctx;
+	}
+
+	public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+		this.batch(ctx, Batch.FORCE);
+	}
+
+	public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+		ByteBuf buffer = ByteBuf.class.cast(msg);
+		if (!buffer.isReadable() || buffer.getByte(buffer.readerIndex()) != BatchHandler.BATCH) {
+			ctx.fireChannelRead(msg);
+			return;
+		}
+		try {
+			buffer.skipBytes(1);
+			while (buffer.isReadable()) {
+				// 子帧长度非法则关闭通道
+				int length = buffer.readableBytes() >= CodecHeader.DEFAULT ? CodecHeader.length(buffer) : -1;
+				if (length < 0 || length > buffer.readableBytes()) {
+					BatchHandler.LOGGER.warn("Malformed batch (length=" + length + ", remain=" + buffer.readableBytes() + ") from " + ctx.channel().remoteAddress() + ", close ... ");
+					ctx.close().addListener(ExceptionListener.TRACE);
+					return;
+				}
+				// 子帧(去除黏包长度, 与LengthFieldBasedFrameDecoder输出一致)
+				ctx.fireChannelRead(buffer.readSlice(length).retain());
+			}
+		} finally {
+			ReferenceCountUtil.release(buffer);
+		}
+	}
+
+	public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+		this.discard(new ClosedChannelException());
+		ctx.fireChannelInactive();
+	}
+
+	@Override
+	public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+		if (!BatchHandler.ENABLED) {
+			ctx.write(msg, promise);
+			return;
+		}
+		// 非帧或大消息直接发送(保证顺序, 先发送已合并)
+		if (!(msg instanceof ByteBuf) || ByteBuf.class.cast(msg).readableBytes() > BatchHandler.THRESHOLD) {
+			this.batch(ctx, Batch.FORCE);
+			ctx.write(msg, promise);
+			return;
+		}
+		ByteBuf frame = ByteBuf.class.cast(msg);
+		// 超过最大字节则先发送已合并
+		if (this.bytes + frame.readableBytes() > BatchHandler.BYTES) {
+			this.batch(ctx, Batch.BYTES);
+		}
+		this.frames.add(frame);
+		this.promises.add(promise);
+		this.bytes += frame.readableBytes();
+		if (this.frames.size() >= BatchHandler.MESSAGES) {
+			this.batch(ctx, Batch.MESSAGES);
+			return;
+		}
+		// 首条消息开启窗口
+		if (BatchHandler.WINDOW > 0 && this.window == null) {
+			this.window = ctx.executor().schedule(this.task, BatchHandler.WINDOW, TimeUnit.MICROSECONDS);
+		}
+	}
+
+	@Override
+	public void flush(ChannelHandlerContext ctx) throws Exception {
+		// 窗口内推迟Flush
+		if (!this.frames.isEmpty() && BatchHandler.WINDOW > 0) {
+			this.flush = true;
+			return;
+		}
+		this.batch(ctx, Batch.FLUSH);
+		ctx.flush();
+	}
+
+	public void close(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception {
+		this.batch(ctx, Batch.FORCE);
+		ctx.close(promise);
+	}
+
+	/**
+	 * 发送已合并帧, 仅1帧时直接发送原始帧
+	 * 
+	 * @param ctx
+	 * @param reason
+	 */
+	private void batch(ChannelHandlerContext ctx, Batch reason) {
+		if (this.window != null) {
+			this.window.cancel(false);
+			this.window = null;
+		}
+		if (this.frames.isEmpty()) {
+			return;
+		}
+		try {
+			this.traffic.batch(this.frames.size(), reason);
+			if (this.frames.size() == 1) {
+				ctx.write(this.frames.get(0), this.promises.get(0));
+			} else {
+				ctx.write(this.composite(ctx)).addListener(new BatchListener(new ArrayList<ChannelPromise>(this.promises)));
+			}
+		} catch (RuntimeException e) {
+			// 未发送, 释放子帧并通知失败, 关闭通道(子帧可能携带已提交的字典定义, 继续使用将导致字典不同步)
+			BatchHandler.LOGGER.warn("Batch (" + this.frames.size() + " frames) to " + ctx.channel().remoteAddress() + " failed, close ... ", e);
+			this.discard(e);
+			ctx.close().addListener(ExceptionListener.TRACE);
+		} finally {
+			this.frames.clear();
+			this.promises.clear();
+			this.bytes = 0;
+		}
+		if (this.flush) {
+			this.flush = false;
+			ctx.flush();
+		}
+	}
+
+	/**
+	 * 批量帧(Composite, 不复制子帧)
+	 * 
+	 * @param ctx
+	 * @return
+	 */
+	private ByteBuf composite(ChannelHandlerContext ctx) {
+		ByteBuf header = ctx.alloc().ioBuffer(CodecHeader.DEFAULT + 1);
+		try {
+			header.writerIndex(CodecHeader.DEFAULT);
+			header.writeByte(BatchHandler.BATCH);
+			CodecHeader.header(header, this.bytes + 1);
+		} catch (RuntimeException e) {
+			ReferenceCountUtil.release(header);
+			throw e;
+		}
+		CompositeByteBuf composite = ctx.alloc().compositeBuffer(this.frames.size() + 1);
+		composite.addComponent(header);
+		for (ByteBuf each : this.frames) {
+			composite.addComponent(each);
+		}
+		return composite.writerIndex(header.readableBytes() + this.bytes);
+	}
+
+	/**
+	 * 释放未发送帧
+	 * 
+	 * @param cause
+	 */
+	private void discard(Throwable cause) {
+		if (this.window != null) {
+			this.window.cancel(false);
+			this.window = null;
+		}
+		for (ByteBuf each : this.frames) {
+			ReferenceCountUtil.release(each);
+		}
+		for (ChannelPromise each : this.promises) {
+			each.tryFailure(cause);
+		}
+		this.frames.clear();
+		this.promises.clear();
+		this.bytes = 0;
+	}
+
+	private class WindowTask implements Runnable {
+
+		@Override
+		public void run() {
+			BatchHandler.this.window = null;
+			BatchHandler.this.batch(BatchHandler.this.ctx, Batch.WINDOW);
+		}
+	}
+
+	/**
+	 * 批量帧发送结果通知至各子帧
+	 * 
+	 * @author kim
+	 * 
+	 * 2016年4月18日
+	 */
+	private static class BatchListener implements ChannelFutureListener {
+
+		private final List<ChannelPromise> promises;
+
+		private BatchListener(List<ChannelPromise> promises) {
+			super();
+			this.promises = promises;
+		}
+
+		@Override
+		public void operationComplete(ChannelFuture future) throws Exception {
+			for (ChannelPromise each : this.promises) {
+				if (future.isSuccess()) {
+					each.trySuccess();
+				} else {
+					each.tryFailure(future.cause());
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,248 @@
+package com.kepler.connection.handler;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.util.ReferenceCountUtil;
+
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import com.kepler.config.Profile;
+import com.kepler.config.PropertiesUtils;
+import com.kepler.service.Service;
+import com.kepler.traffic.Traffic;
+
+/**
+ * 压缩(Deflate), 序列化策略字节最高位标记是否压缩
+ * 
+ * 压缩后格式: 黏包长度 + 序列化策略(| FLAG) + 原始长度(int) + 压缩数据
+ * 
+ * @author kim
+ * 
+ * 2016年4月17日
+ */
+public class CodecCompress {
+
+	/**
+	 * 压缩标记(序列化策略字节最高位)
+	 */
+	private static final int FLAG = 0x80;
+
+	/**
+	 * 压缩阀值(字节), 小于0则不压缩
+	 */
+	public static final String THRESHOLD_KEY = CodecCompress.class.getName().toLowerCase() + ".threshold";
+
+	public static final int THRESHOLD_DEF = PropertiesUtils.get(CodecCompress.THRESHOLD_KEY, -1);
+
+	/**
+	 * 压缩级别, 默认速度优先
+	 */
+	private static final int LEVEL = PropertiesUtils.get(CodecCompress.class.getName().toLowerCase() + ".level", Deflater.BEST_SPEED);
+
+	/**
+	 * 解压后最大长度(不超过黏包可表示长度), 防止非法帧申请超大内存
+	 */
+	private static final int MAX = Math.min(CodecHeader.MAX, PropertiesUtils.get(CodecCompress.class.getName().toLowerCase() + ".max", 0x4000000));
+
+	/**
+	 * 黏包长度 + 序列化策略
+	 */
+	private static final int OFFSET = CodecHeader.DEFAULT + 1;
+
+	/**
+	 * 可重用Deflater/Inflater(EventLoop线程)
+	 */
+	private static final ThreadLocal<Deflater> DEFLATER = new ThreadLocal<Deflater>() {
+		protected Deflater initialValue() {
+			return new Deflater(CodecCompress.LEVEL, true);
+		}
+	};
+
+	private static final ThreadLocal<Inflater> INFLATER = new ThreadLocal<Inflater>() {
+		protected Inflater initialValue() {
+			return new Inflater(true);
+		}
+	};
+
+	/**
+	 * 服务对应压缩阀值
+	 * 
+	 * @param profile
+	 * @param service
+	 * @return
+	 */
+	public static int threshold(Profile profile, Service service) {
+		return PropertiesUtils.profile(profile.profile(service), CodecCompress.THRESHOLD_KEY, CodecCompress.THRESHOLD_DEF);
+	}
+
+	/**
+	 * 开启压缩则包装为Frame, 否则返回原始消息
+	 * 
+	 * @param message
+	 * @param threshold
+	 * @return
+	 */
+	public static Object frame(Object message, int threshold) {
+		return threshold < 0 ? message : new Frame(message, threshold);
+	}
+
+	public static boolean compressed(byte serial) {
+		return (serial & CodecCompress.FLAG) != 0;
+	}
+
+	/**
+	 * 去除压缩标记
+	 * 
+	 * @param serial
+	 * @return
+	 */
+	public static byte serial(byte serial) {
+		return (byte) (serial & ~CodecCompress.FLAG);
+	}
+
+	/**
+	 * 压缩完整消息(已预留黏包长度), 小于阀值或压缩后未减少则返回原始ByteBuf
+	 * 
+	 * @param allocator
+	 * @param frame
+	 * @param threshold
+	 * @param traffic
+	 * @return 压缩成功则释放原始ByteBuf并返回新ByteBuf
+	 */
+	public static ByteBuf compress(ByteBufAllocator allocator, ByteBuf frame, int threshold, Traffic traffic) {
+		int length = frame.readableBytes() - CodecCompress.OFFSET;
+		if (threshold < 0 || length < threshold) {
+			return frame;
+		}
+		long start = System.nanoTime();
+		// 最大不超过原始长度, 超过则放弃压缩
+		int limit = CodecCompress.OFFSET + 4 + length;
+		ByteBuf compressed = allocator.heapBuffer(limit);
+		Deflater deflater = CodecCompress.DEFLATER.get();
+		try {
+			CodecCompress.input(deflater, frame, frame.readerIndex() + CodecCompress.OFFSET, length);
+			deflater.finish();
+			int written = CodecCompress.OFFSET + 4;
+			while (!deflater.finished() && written < limit) {
+				written += deflater.deflate(compressed.array(), compressed.arrayOffset() + written, limit - written);
+			}
+			if (!deflater.finished()) {
+				traffic.compress(length, length, System.nanoTime() - start);
+				ReferenceCountUtil.release(compressed);
+				return frame;
+			}
+			compressed.setByte(CodecHeader.DEFAULT, frame.getByte(frame.readerIndex() + CodecHeader.DEFAULT) | CodecCompress.FLAG);
+			compressed.setInt(CodecCompress.OFFSET, length);
+			compressed.writerIndex(written);
+			traffic.compress(length, written - CodecCompress.OFFSET, System.nanoTime() - start);
+			ReferenceCountUtil.release(frame);
+			return compressed;
+		} catch (RuntimeException e) {
+			ReferenceCountUtil.release(compressed);
+			throw e;
+		} finally {
+			deflater.reset();
+		}
+	}
+
+	/**
+	 * 解压(序列化策略字节已读取)
+	 * 
+	 * @param allocator
+	 * @param buffer
+	 * @param traffic
+	 * @return 解压后ByteBuf, 由调用方释放
+	 * @throws DataFormatException
+	 */
+	public static ByteBuf decompress(ByteBufAllocator allocator, ByteBuf buffer, Traffic traffic) throws DataFormatException {
+		long start = System.nanoTime();
+		int length = buffer.readInt();
+		if (length < 0 || length > CodecCompress.MAX) {
+			throw new DataFormatException("Illegal length: " + length + " (max " + CodecCompress.MAX + ")");
+		}
+		ByteBuf decompressed = allocator.heapBuffer(length, length);
+		Inflater inflater = CodecCompress.INFLATER.get();
+		try {
+			CodecCompress.input(inflater, buffer, buffer.readerIndex(), buffer.readableBytes());
+			int read = 0;
+			while (read < length) {
+				int each = inflater.inflate(decompressed.array(), decompressed.arrayOffset() + read, length - read);
+				if (each == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+					break;
+				}
+				read += each;
+			}
+			if (read != length) {
+				throw new DataFormatException("Expect " + length + " bytes but " + read + " ... ");
+			}
+			buffer.skipBytes(buffer.readableBytes());
+			traffic.decompress(System.nanoTime() - start);
+			return decompressed.writerIndex(length);
+		} catch (DataFormatException | RuntimeException e) {
+			ReferenceCountUtil.release(decompressed);
+			throw e;
+		} finally {
+			inflater.reset();
+		}
+	}
+
+	/**
+	 * Deflater/Inflater仅支持byte[], 非Heap ByteBuf则复制
+	 * 
+	 * @param deflater
+	 * @param buffer
+	 * @param index
+	 * @param length
+	 */
+	private static void input(Deflater deflater, ByteBuf buffer, int index, int length) {
+		if (buffer.hasArray()) {
+			deflater.setInput(buffer.array(), buffer.arrayOffset() + index, length);
+		} else {
+			deflater.setInput(CodecCompress.copy(buffer, index, length));
+		}
+	}
+
+	private static void input(Inflater inflater, ByteBuf buffer, int index, int length) {
+		if (buffer.hasArray()) {
+			inflater.setInput(buffer.array(), buffer.arrayOffset() + index, length);
+		} else {
+			inflater.setInput(CodecCompress.copy(buffer, index, length));
+		}
+	}
+
+	private static byte[] copy(ByteBuf buffer, int index, int length) {
+		byte[] bytes = new byte[length];
+		buffer.getBytes(index, bytes);
+		return bytes;
+	}
+
+	/**
+	 * 待编码消息及压缩阀值
+	 * 
+	 * @author kim
+	 * 
+	 * 2016年4月17日
+	 */
+	public static class Frame {
+
+		private final Object message;
+
+		private final int threshold;
+
+		private Frame(Object message, int threshold) {
+			super();
+			this.message = message;
+			this.threshold = threshold;
+		}
+
+		public Object message() {
+			return this.message;
+		}
+
+		public int threshold() {
+			return this.threshold;
+		}
+	}
+}
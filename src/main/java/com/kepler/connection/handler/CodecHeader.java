@@ -1,5 +1,7 @@
 package com.kepler.connection.handler;
 
+import io.netty.buffer.ByteBuf;
+
 import java.util.HashMap;
 import java.util.Map;
 
@@ -30,7 +32,57 @@ public enum CodecHeader {
 
 	public static final int DEFAULT = CodecHeader.CODEC.code();
 
+	/**
+	 * 黏包字节可表示的最大长度
+	 */
+	public static final int MAX = CodecHeader.CODEC == ONE ? 0xFF : CodecHeader.CODEC == TWO ? 0xFFFF : Integer.MAX_VALUE;
+
 	public int code() {
 		return MAPPING.get(this).intValue();
 	}
+
+	/**
+	 * 读取黏包长度
+	 * 
+	 * @param buffer
+	 * @return 不含黏包字节自身长度
+	 */
+	public static int length(ByteBuf buffer) {
+		switch (CodecHeader.CODEC) {
+		case ONE:
+			return buffer.readUnsignedByte();
+		case TWO:
+			return buffer.readUnsignedShort();
+		case FOUR:
+			return buffer.readInt();
+		default:
+			return (int) buffer.readLong();
+		}
+	}
+
+	/**
+	 * 回填黏包长度(ByteBuf起始位置已预留CodecHeader.DEFAULT字节)
+	 * 
+	 * @param buffer
+	 * @param length 不含黏包字节自身长度
+	 * @return
+	 */
+	public static ByteBuf header(ByteBuf buffer, int length) {
+		switch (CodecHeader.CODEC) {
+		case ONE:
+			if (length >= 0x100) {
+				throw new IllegalArgumentException("Length does not fit into a byte: " + length);
+			}
+			return buffer.setByte(0, length);
+		case TWO:
+			if (length >= 0x10000) {
+				throw new IllegalArgumentException("Length does not fit into a short integer: " + length);
+			}
+			return buffer.setShort(0, length);
+		case FOUR:
+			return buffer.setInt(0, length);
+		default:
+			return buffer.setLong(0, length);
+		}
+	}
 }
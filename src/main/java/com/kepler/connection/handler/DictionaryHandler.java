@@ -0,0 +1,121 @@
+package com.kepler.connection.handler;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.util.AttributeKey;
+import io.netty.util.ReferenceCountUtil;
+
+import com.kepler.config.PropertiesUtils;
+import com.kepler.connection.impl.ExceptionListener;
+import com.kepler.serial.impl.Dictionary;
+
+/**
+ * 连接级字典协商, 每个通道独立(非Sharable)
+ * 
+ * 1, 协商帧: 黏包长度 + NEGOTIATE(占用序列化策略字节) + REQUEST/ACCEPT, 不进入编解码
+ * 2, Client: 通道激活时发送Request, 收到Accept后启用字典(此前Request使用完整字符串)
+ * 3, Server: 收到Request时创建字典并响应Accept
+ * 4, 上线顺序: 先升级全部Server(默认接受协商), 再开启Client(默认不发起协商)
+ * 
+ * @author kim
+ * 
+ * 2016年4月18日
+ */
+public class DictionaryHandler extends ChannelInboundHandlerAdapter {
+
+	/**
+	 * 是否主动发起协商(Client), 默认关闭, 旧版本Server无法识别协商帧
+	 */
+	public static final boolean ENABLED = PropertiesUtils.get(DictionaryHandler.class.getName().toLowerCase() + ".enabled", false);
+
+	/**
+	 * 是否接受协商(Server)
+	 */
+	private static final boolean ACCEPTABLE = PropertiesUtils.get(DictionaryHandler.class.getName().toLowerCase() + ".acceptable", true);
+
+	/**
+	 * 通道字典(Attribute)
+	 */
+	private static final AttributeKey<Dictionary> DICTIONARY = AttributeKey.valueOf(DictionaryHandler.class.getName());
+
+	/**
+	 * 协商帧标记(序列化策略保留值)
+	 */
+	private static final byte NEGOTIATE = 0x7B;
+
+	private static final byte REQUEST = 0;
+
+	private static final byte ACCEPT = 1;
+
+	/**
+	 * 是否主动发起协商(Client)
+	 */
+	private final boolean client;
+
+	/**
+	 * 是否已发起协商
+	 */
+	private boolean negotiated;
+
+	public DictionaryHandler(boolean client) {
+		super();
+		this.client = client;
+	}
+
+	/**
+	 * 通道已协商字典, 未协商则返回Null
+	 * 
+	 * @param channel
+	 * @return
+	 */
+	public static Dictionary dictionary(Channel channel) {
+		return channel.attr(DictionaryHandler.DICTIONARY).get();
+	}
+
+	public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+		// 通道已激活则立即协商(否则等待ChannelActive)
+		if (ctx.channel().isActive()) {
+			this.negotiate(ctx);
+		}
+	}
+
+	public void channelActive(ChannelHandlerContext ctx) throws Exception {
+		this.negotiate(ctx);
+		ctx.fireChannelActive();
+	}
+
+	public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+		ByteBuf buffer = ByteBuf.class.cast(msg);
+		if (buffer.readableBytes() != 2 || buffer.getByte(buffer.readerIndex()) != DictionaryHandler.NEGOTIATE) {
+			ctx.fireChannelRead(msg);
+			return;
+		}
+		try {
+			if (!(this.client ? DictionaryHandler.ENABLED : DictionaryHandler.ACCEPTABLE)) {
+				return;
+			}
+			ctx.channel().attr(DictionaryHandler.DICTIONARY).set(new Dictionary());
+			if (buffer.getByte(buffer.readerIndex() + 1) == DictionaryHandler.REQUEST) {
+				this.negotiate(ctx, DictionaryHandler.ACCEPT);
+			}
+		} finally {
+			ReferenceCountUtil.release(buffer);
+		}
+	}
+
+	private void negotiate(ChannelHandlerContext ctx) {
+		if (this.client && DictionaryHandler.ENABLED && !this.negotiated) {
+			this.negotiated = true;
+			this.negotiate(ctx, DictionaryHandler.REQUEST);
+		}
+	}
+
+	private void negotiate(ChannelHandlerContext ctx, byte type) {
+		ByteBuf buffer = ctx.alloc().ioBuffer(CodecHeader.DEFAULT + 2);
+		buffer.writerIndex(CodecHeader.DEFAULT);
+		buffer.writeByte(DictionaryHandler.NEGOTIATE).writeByte(type);
+		ctx.writeAndFlush(CodecHeader.header(buffer, 2)).addListener(ExceptionListener.TRACE);
+	}
+}
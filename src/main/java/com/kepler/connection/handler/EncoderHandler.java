@@ -1,13 +1,19 @@
 package com.kepler.connection.handler;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.CompositeByteBuf;
 import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.channel.AdaptiveRecvByteBufAllocator;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandler.Sharable;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelOutboundHandlerAdapter;
 import io.netty.channel.ChannelPromise;
 import io.netty.channel.RecvByteBufAllocator.Handle;
+import io.netty.util.Attribute;
+import io.netty.util.AttributeKey;
 import io.netty.util.ReferenceCountUtil;
 
 import java.io.OutputStream;
@@ -19,9 +25,13 @@ import com.kepler.config.PropertiesUtils;
 import com.kepler.connection.impl.ExceptionListener;
 import com.kepler.serial.SerialID;
 import com.kepler.serial.Serials;
+import com.kepler.serial.impl.Dictionary;
+import com.kepler.serial.impl.DictionaryContext;
 import com.kepler.traffic.Traffic;
 
 /**
+ * 编码(超过阀值则压缩)并回填黏包长度(替代LengthFieldPrepender)
+ * 
  * @author kim 2015年7月8日
  */
 @Sharable
@@ -32,6 +42,11 @@ public class EncoderHandler extends ChannelOutboundHandlerAdapter {
 	 */
 	private static final double ADJUST = PropertiesUtils.get(EncoderHandler.class.getName().toLowerCase() + ".adjust", 0.75);
 
+	/**
+	 * 超出预测大小时CompositeByteBuf最大组件数量
+	 */
+	private static final int COMPONENTS = PropertiesUtils.get(EncoderHandler.class.getName().toLowerCase() + ".components", 16);
+
 	private static final Log LOGGER = LogFactory.getLog(EncoderHandler.class);
 
 	/**
@@ -43,12 +58,12 @@ public class EncoderHandler extends ChannelOutboundHandlerAdapter {
 		}
 	};
 
+	private final PooledByteBufAllocator allocator = PooledByteBufAllocator.DEFAULT;
+
 	/**
-	 * 分配计算
+	 * 分配计算, 每个通道及编码类型(Request/Response)独立
 	 */
-	private final Handle estimate = AdaptiveRecvByteBufAllocator.DEFAULT.newHandle();
-
-	private final PooledByteBufAllocator allocator = PooledByteBufAllocator.DEFAULT;
+	private final AttributeKey<Handle> estimate;
 
 	private final Serials serials;
 
@@ -61,27 +76,97 @@ public class EncoderHandler extends ChannelOutboundHandlerAdapter {
 		this.clazz = clazz;
 		this.serials = serials;
 		this.traffic = traffic;
+		this.estimate = AttributeKey.valueOf(EncoderHandler.class.getName() + "." + clazz.getName());
+	}
+
+	/**
+	 * 获取当前通道分配计算(仅由通道所属EventLoop访问, 无竞争)
+	 * 
+	 * @param ctx
+	 * @return
+	 */
+	private Handle estimate(ChannelHandlerContext ctx) {
+		Attribute<Handle> attribute = ctx.attr(this.estimate);
+		Handle estimate = attribute.get();
+		if (estimate == null) {
+			attribute.set(estimate = AdaptiveRecvByteBufAllocator.DEFAULT.newHandle());
+		}
+		return estimate;
 	}
 
 	public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
-		// 分配ByteBuf(预测大小)
-		ByteBuf buffer = this.estimate.allocate(this.allocator);
+		// 已编码帧(如Credit帧)直接发送
+		if (msg instanceof ByteBuf) {
+			ctx.write(msg, promise);
+			return;
+		}
+		// 是否指定压缩阀值
+		int threshold = -1;
+		if (msg instanceof CodecCompress.Frame) {
+			CodecCompress.Frame frame = CodecCompress.Frame.class.cast(msg);
+			threshold = frame.threshold();
+			msg = frame.message();
+		}
+		Handle estimate = this.estimate(ctx);
+		// 分配ByteBuf(预测大小)并预留黏包长度
+		BufferOutputStream output = EncoderHandler.OUTPUT.get().reset(this.allocator, estimate.guess());
+		// 通道字典(已协商)绑定至当前线程
+		Dictionary dictionary = DictionaryHandler.dictionary(ctx.channel());
+		DictionaryContext.set(dictionary);
+		ByteBuf buffer = null;
 		try {
 			// 获取序列化策略(如Request/Response)
 			byte serial = SerialID.class.cast(msg).serial();
 			// 首字节为序列化策略
-			ctx.writeAndFlush(BufferOutputStream.class.cast(this.serials.output(serial).output(msg, this.clazz, EncoderHandler.OUTPUT.get().reset(buffer.writeByte(serial)), (int) (buffer.capacity() * EncoderHandler.ADJUST))).record(this.traffic, this.estimate).buffer()).addListener(ExceptionListener.TRACE);
+			output.write(serial);
+			this.serials.output(serial).output(msg, this.clazz, output, (int) (output.capacity() * EncoderHandler.ADJUST));
+			buffer = output.record(estimate);
+			// 超过阀值则压缩
+			buffer = CodecCompress.compress(this.allocator, buffer, threshold, this.traffic);
+			// 回填黏包长度, 流量记录(不含黏包长度)
+			int length = buffer.readableBytes() - CodecHeader.DEFAULT;
+			CodecHeader.header(buffer, length);
+			this.traffic.output(length);
+			// 成帧成功, 提交新增定义
+			boolean defining = dictionary != null && dictionary.defining();
+			if (defining) {
+				dictionary.commit();
+			}
+			// 仅Write(Flush由上游触发并经FlushHandler合并)
+			ChannelFuture future = ctx.write(buffer, promise).addListener(ExceptionListener.TRACE);
+			// 携带新增定义的帧发送失败则关闭通道(已提交定义对端未接收, 字典无法继续同步)
+			if (defining) {
+				future.addListener(ChannelFutureListener.CLOSE_ON_FAILURE);
+			}
 		} catch (Throwable throwable) {
-			// 异常, 释放ByteBuf
-			if (buffer.refCnt() > 0) {
+			// 异常, 回滚新增定义(对端未接收)并释放ByteBuf
+			if (dictionary != null) {
+				dictionary.rollback();
+			}
+			output.release();
+			if (buffer != null && buffer.refCnt() > 0) {
 				ReferenceCountUtil.release(buffer);
 			}
 			EncoderHandler.LOGGER.error("To:(" + ctx.channel().remoteAddress() + ") " + throwable.getMessage(), throwable);
+			// 通知发送方失败
+			promise.tryFailure(throwable);
+		} finally {
+			DictionaryContext.release();
 		}
 	}
 
 	private static class BufferOutputStream extends OutputStream {
 
+		private ByteBufAllocator allocator;
+
+		/**
+		 * 已写满的ByteBuf(超出预测大小时使用)
+		 */
+		private CompositeByteBuf composite;
+
+		/**
+		 * 当前写入ByteBuf
+		 */
 		private ByteBuf buffer;
 
 		/**
@@ -99,18 +184,43 @@ public class EncoderHandler extends ChannelOutboundHandlerAdapter {
 			}
 		}
 
-		public BufferOutputStream reset(ByteBuf buffer) {
-			this.buffer = buffer;
+		public BufferOutputStream reset(ByteBufAllocator allocator, int estimate) {
+			this.allocator = allocator;
+			this.composite = null;
+			this.buffer = allocator.ioBuffer(Math.max(estimate, CodecHeader.DEFAULT + 1));
+			// 预留黏包长度, 写入完毕后回填
+			this.buffer.writerIndex(CodecHeader.DEFAULT);
 			return this;
 		}
 
-		public ByteBuf buffer() {
-			return this.buffer;
+		public int capacity() {
+			return this.buffer.capacity();
+		}
+
+		/**
+		 * 当前ByteBuf已写满则追加至CompositeByteBuf并分配新ByteBuf, 已写入数据不复制
+		 * 
+		 * @param length 至少需要的可写长度
+		 * @return
+		 */
+		private ByteBuf grow(int length) {
+			this.seal();
+			// 按已写入总量倍增
+			return this.buffer = this.allocator.ioBuffer(Math.max(length, this.composite.readableBytes()));
+		}
+
+		private void seal() {
+			if (this.composite == null) {
+				this.composite = this.allocator.compositeBuffer(EncoderHandler.COMPONENTS);
+			}
+			this.composite.addComponent(this.buffer);
+			this.composite.writerIndex(this.composite.writerIndex() + this.buffer.readableBytes());
+			this.buffer = null;
 		}
 
 		@Override
 		public void write(int data) {
-			this.buffer.writeByte(data);
+			(this.buffer.isWritable() ? this.buffer : this.grow(1)).writeByte(data);
 		}
 
 		public void write(byte[] src) {
@@ -122,23 +232,54 @@ public class EncoderHandler extends ChannelOutboundHandlerAdapter {
 			if (length == 0) {
 				return;
 			}
-			this.buffer.writeBytes(src, offset, length);
+			// 优先写满当前ByteBuf, 剩余部分写入新ByteBuf
+			int length4current = Math.min(this.buffer.writableBytes(), length);
+			this.buffer.writeBytes(src, offset, length4current);
+			if (length4current < length) {
+				this.grow(length - length4current).writeBytes(src, offset + length4current, length - length4current);
+			}
 		}
 
 		/**
-		 * 写入完毕, 回调写入信息
+		 * 写入完毕, 更新预估大小(黏包长度待回填)
 		 * 
-		 * @param traffic
 		 * @param estimate
 		 * @return
 		 */
-		public BufferOutputStream record(Traffic traffic, Handle estimate) {
-			int readable = this.buffer.readableBytes();
-			// 流量记录
-			traffic.output(readable);
+		public ByteBuf record(Handle estimate) {
+			ByteBuf buffer = this.buffer;
+			if (this.composite != null) {
+				this.seal();
+				buffer = this.composite;
+			}
 			// 预估大小更新
-			estimate.record(readable);
-			return this;
+			estimate.record(buffer.readableBytes());
+			this.clear();
+			return buffer;
+		}
+
+		/**
+		 * 异常时释放已分配ByteBuf
+		 */
+		public void release() {
+			this.release(this.buffer);
+			this.release(this.composite);
+			this.clear();
+		}
+
+		private void release(ByteBuf buffer) {
+			if (buffer != null && buffer.refCnt() > 0) {
+				ReferenceCountUtil.release(buffer);
+			}
+		}
+
+		/**
+		 * 解除引用(ThreadLocal)
+		 */
+		private void clear() {
+			this.allocator = null;
+			this.composite = null;
+			this.buffer = null;
 		}
 	}
 }
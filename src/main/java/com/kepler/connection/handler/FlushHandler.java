@@ -0,0 +1,134 @@
+package com.kepler.connection.handler;
+
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+
+import com.kepler.config.PropertiesUtils;
+
+/**
+ * 合并Flush, 每个通道独立(非Sharable)
+ * 
+ * 1, Read期间的Flush合并至ChannelReadComplete
+ * 2, 非Read期间的Flush合并至EventLoop下一次任务调度(当前批次IO处理完毕)
+ * 3, 待合并Flush数量超过阀值则立即Flush
+ * 
+ * @author kim
+ * 
+ * 2016年4月10日
+ */
+public class FlushHandler extends ChannelDuplexHandler {
+
+	/**
+	 * 是否开启Flush合并
+	 */
+	public static final boolean ENABLED = PropertiesUtils.get(FlushHandler.class.getName().toLowerCase() + ".enabled", true);
+
+	/**
+	 * 最大待合并Flush数量
+	 */
+	private static final int FLUSHES = Math.max(1, PropertiesUtils.get(FlushHandler.class.getName().toLowerCase() + ".flushes", 256));
+
+	private final Runnable task = new FlushTask();
+
+	private ChannelHandlerContext ctx;
+
+	/**
+	 * 待合并Flush数量
+	 */
+	private int flushes;
+
+	/**
+	 * 是否处于Read期间
+	 */
+	private boolean reading;
+
+	/**
+	 * 是否已提交FlushTask
+	 */
+	private boolean scheduled;
+
+	public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+		this.ctx = ctx;
+	}
+
+	public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+		this.flush4pending(ctx);
+	}
+
+	@Override
+	public void flush(ChannelHandlerContext ctx) throws Exception {
+		// 超过阀值立即Flush
+		if (++this.flushes >= FlushHandler.FLUSHES) {
+			this.flush4actual(ctx);
+			return;
+		}
+		// 非Read期间则在EventLoop空闲时Flush
+		if (!this.reading && !this.scheduled) {
+			this.scheduled = true;
+			ctx.channel().eventLoop().execute(this.task);
+		}
+	}
+
+	public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+		this.reading = true;
+		ctx.fireChannelRead(msg);
+	}
+
+	public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
+		this.reading = false;
+		this.flush4pending(ctx);
+		ctx.fireChannelReadComplete();
+	}
+
+	public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+		// 不可写时立即Flush, 尽快释放Outbound Buffer
+		if (!ctx.channel().isWritable()) {
+			this.flush4pending(ctx);
+		}
+		ctx.fireChannelWritabilityChanged();
+	}
+
+	public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+		this.flush4pending(ctx);
+		ctx.fireExceptionCaught(cause);
+	}
+
+	public void disconnect(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception {
+		this.flush4pending(ctx);
+		ctx.disconnect(promise);
+	}
+
+	public void close(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception {
+		this.flush4pending(ctx);
+		ctx.close(promise);
+	}
+
+	/**
+	 * 存在待合并Flush则Flush
+	 * 
+	 * @param ctx
+	 */
+	private void flush4pending(ChannelHandlerContext ctx) {
+		if (this.flushes > 0) {
+			this.flush4actual(ctx);
+		}
+	}
+
+	private void flush4actual(ChannelHandlerContext ctx) {
+		this.flushes = 0;
+		ctx.flush();
+	}
+
+	private class FlushTask implements Runnable {
+
+		@Override
+		public void run() {
+			FlushHandler.this.scheduled = false;
+			// Read期间由ChannelReadComplete负责
+			if (!FlushHandler.this.reading) {
+				FlushHandler.this.flush4pending(FlushHandler.this.ctx);
+			}
+		}
+	}
+}
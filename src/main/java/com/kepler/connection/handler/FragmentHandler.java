@@ -0,0 +1,255 @@
+package com.kepler.connection.handler;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.util.ReferenceCountUtil;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.kepler.KeplerSerialException;
+import com.kepler.protocol.Request;
+import com.kepler.stream.Fragment;
+import com.kepler.stream.FragmentContext;
+
+/**
+ * 分片参数重组(Server), 每个通道独立(非Sharable)
+ * 
+ * 1, 缓冲区随分片到达扩容, 不信任分片帧声明的总长度
+ * 2, 限制通道未完成ID数量及字节, 超出则丢弃, 由Request返回异常
+ * 3, 定时清理空闲超时的未完成分片(如Client发送失败/过载后遗留)
+ * 
+ * @author kim
+ * 
+ * 2016年4月18日
+ */
+public class FragmentHandler extends ChannelInboundHandlerAdapter {
+
+	private static final Log LOGGER = LogFactory.getLog(FragmentHandler.class);
+
+	/**
+	 * ID -> 已接收分片
+	 */
+	private final ConcurrentMap<Integer, Assembly> assemblies = new ConcurrentHashMap<Integer, Assembly>();
+
+	/**
+	 * 通道未完成分片已占用字节
+	 */
+	private final AtomicLong bytes = new AtomicLong();
+
+	private ScheduledFuture<?> expire;
+
+	public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+		this.expire = ctx.executor().scheduleAtFixedRate(new ExpireTask(), FragmentContext.EXPIRE, FragmentContext.EXPIRE, TimeUnit.MILLISECONDS);
+	}
+
+	public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+		this.clear();
+	}
+
+	public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+		ByteBuf buffer = ByteBuf.class.cast(msg);
+		if (!FragmentContext.part(buffer)) {
+			ctx.fireChannelRead(msg);
+			return;
+		}
+		try {
+			int id = buffer.skipBytes(1).readInt();
+			int total = buffer.readInt();
+			Assembly assembly = this.assemblies.get(id);
+			if (assembly == null) {
+				// 未完成ID超出上限则丢弃, 由Request返回异常
+				if (this.assemblies.size() >= FragmentContext.PENDING) {
+					FragmentHandler.LOGGER.warn("Fragment " + id + " from " + ctx.channel().remoteAddress() + " discard, pending exceed " + FragmentContext.PENDING + " ... ");
+					return;
+				}
+				this.assemblies.put(id, assembly = new Assembly(total));
+			}
+			assembly.append(buffer);
+		} finally {
+			ReferenceCountUtil.release(buffer);
+		}
+	}
+
+	public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+		this.clear();
+		ctx.fireChannelInactive();
+	}
+
+	private void clear() {
+		if (this.expire != null) {
+			this.expire.cancel(false);
+		}
+		this.assemblies.clear();
+		this.bytes.set(0);
+	}
+
+	/**
+	 * 移除并释放已接收分片
+	 * 
+	 * @param id
+	 */
+	private void remove(int id) {
+		Assembly assembly = this.assemblies.remove(id);
+		if (assembly != null) {
+			assembly.release();
+		}
+	}
+
+	/**
+	 * 使用已接收分片替换Fragment占位参数
+	 * 
+	 * @param request
+	 * @return
+	 */
+	public Request assemble(Request request) {
+		for (int index = 0; index < request.args().length; index++) {
+			if (request.args()[index] instanceof Fragment) {
+				Assembly assembly = this.assemblies.remove(Fragment.class.cast(request.args()[index]).id());
+				if (assembly == null || assembly.overflow()) {
+					throw new KeplerSerialException("Fragment " + request.args()[index] + " for " + request.service() + " (" + request.method() + ") missing or exceed " + FragmentContext.MAX + " bytes ... ");
+				}
+				byte[] bytes = assembly.bytes();
+				request.args()[index] = InputStream.class.equals(request.types()[index]) ? new ByteArrayInputStream(bytes) : bytes;
+			}
+		}
+		return request;
+	}
+
+	/**
+	 * 释放未执行Request的分片(如过载/超时)
+	 * 
+	 * @param request
+	 */
+	public void discard(Request request) {
+		for (Object each : request.args()) {
+			if (each instanceof Fragment) {
+				this.remove(Fragment.class.cast(each).id());
+			}
+		}
+	}
+
+	/**
+	 * 清理空闲超时的未完成分片(EventLoop执行)
+	 * 
+	 * @author kim
+	 * 
+	 * 2016年4月18日
+	 */
+	private class ExpireTask implements Runnable {
+
+		@Override
+		public void run() {
+			long deadline = System.currentTimeMillis() - FragmentContext.EXPIRE;
+			for (Integer id : FragmentHandler.this.assemblies.keySet()) {
+				Assembly assembly = FragmentHandler.this.assemblies.get(id);
+				if (assembly != null && assembly.touched() < deadline && FragmentHandler.this.assemblies.remove(id, assembly)) {
+					assembly.release();
+					FragmentHandler.LOGGER.warn("Fragment " + id + " expired after " + FragmentContext.EXPIRE + "ms, discard ... ");
+				}
+			}
+		}
+	}
+
+	/**
+	 * 单个参数的已接收分片(EventLoop写入)
+	 * 
+	 * @author kim
+	 * 
+	 * 2016年4月18日
+	 */
+	private class Assembly {
+
+		/**
+		 * 总长度, 未知为-1 (仅用于限制扩容, 不预分配)
+		 */
+		private final int total;
+
+		private byte[] bytes = new byte[0];
+
+		private int length;
+
+		private boolean overflow;
+
+		private volatile long touched = System.currentTimeMillis();
+
+		/**
+		 * @param total 总长度, 未知为-1
+		 */
+		private Assembly(int total) {
+			super();
+			this.total = total;
+			this.overflow = total > FragmentContext.MAX;
+		}
+
+		public void append(ByteBuf buffer) {
+			int readable = buffer.readableBytes();
+			this.touched = System.currentTimeMillis();
+			if (this.overflow) {
+				return;
+			}
+			// 超出上限则丢弃已接收分片, 由Request返回异常
+			if (this.length + readable > FragmentContext.MAX) {
+				this.overflow("Fragment exceed " + FragmentContext.MAX + " bytes, discard ... ");
+				return;
+			}
+			if (this.length + readable > this.bytes.length) {
+				// 按分片扩容(倍增), 已知总长度则不超过总长度
+				int capacity = Math.min(FragmentContext.MAX, Math.max(this.length + readable, Math.min(this.total >= 0 ? this.total : FragmentContext.MAX, Math.max(FragmentContext.PART, this.bytes.length << 1))));
+				if (FragmentHandler.this.bytes.addAndGet(capacity - this.bytes.length) > FragmentContext.BYTES) {
+					FragmentHandler.this.bytes.addAndGet(this.bytes.length - capacity);
+					this.overflow("Fragments exceed " + FragmentContext.BYTES + " bytes for channel, discard ... ");
+					return;
+				}
+				this.bytes = Arrays.copyOf(this.bytes, capacity);
+			}
+			buffer.readBytes(this.bytes, this.length, readable);
+			this.length += readable;
+		}
+
+		private void overflow(String message) {
+			this.release();
+			this.overflow = true;
+			FragmentHandler.LOGGER.warn(message);
+		}
+
+		/**
+		 * 归还通道占用字节
+		 */
+		public void release() {
+			if (this.bytes != null) {
+				FragmentHandler.this.bytes.addAndGet(-this.bytes.length);
+				this.bytes = null;
+			}
+		}
+
+		public long touched() {
+			return this.touched;
+		}
+
+		public boolean overflow() {
+			return this.overflow;
+		}
+
+		/**
+		 * 重组后参数并归还通道占用字节
+		 * 
+		 * @return
+		 */
+		public byte[] bytes() {
+			byte[] bytes = this.length == this.bytes.length ? this.bytes : Arrays.copyOf(this.bytes, this.length);
+			this.release();
+			return bytes;
+		}
+	}
+}
@@ -0,0 +1,177 @@
+package com.kepler.connection.handler;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.ScheduledFuture;
+
+import java.util.concurrent.TimeUnit;
+
+import com.kepler.config.PropertiesUtils;
+import com.kepler.connection.impl.ExceptionListener;
+
+/**
+ * 应用层心跳(Ping/Pong), 每个通道独立(非Sharable)
+ * 
+ * 1, 心跳帧: 黏包长度 + HEARTBEAT(占用序列化策略字节) + PING/PONG, 不进入编解码
+ * 2, Client: 空闲(未读取任何数据)超过间隔则发送Ping, 连续未响应超过阀值则触发Event.DEAD
+ * 3, Server: 响应Ping
+ * 4, 对端响应过Pong才判定失效
+ * 5, 开启前需确认对端已支持心跳(旧版本无法解析心跳帧)
+ * 
+ * @author kim
+ * 
+ * 2016年4月17日
+ */
+public class HeartbeatHandler extends ChannelDuplexHandler {
+
+	/**
+	 * 是否开启心跳(Client), 默认关闭
+	 */
+	public static final boolean ENABLED = PropertiesUtils.get(HeartbeatHandler.class.getName().toLowerCase() + ".enabled", false);
+
+	/**
+	 * 心跳间隔(毫秒)
+	 */
+	private static final int INTERVAL = Math.max(100, PropertiesUtils.get(HeartbeatHandler.class.getName().toLowerCase() + ".interval", 1000));
+
+	/**
+	 * 允许连续未响应次数
+	 */
+	private static final int MISSES = Math.max(1, PropertiesUtils.get(HeartbeatHandler.class.getName().toLowerCase() + ".misses", 3));
+
+	/**
+	 * 心跳帧标记(序列化策略保留值)
+	 */
+	private static final byte HEARTBEAT = 0x7F;
+
+	private static final byte PING = 0;
+
+	private static final byte PONG = 1;
+
+	/**
+	 * 心跳事件
+	 * 
+	 * @author kim
+	 * 
+	 * 2016年4月17日
+	 */
+	public enum Event {
+
+		/**
+		 * 通道失效
+		 */
+		DEAD;
+	}
+
+	private final Runnable task = new HeartbeatTask();
+
+	/**
+	 * 是否主动发送Ping(Client)
+	 */
+	private final boolean ping;
+
+	private ChannelHandlerContext ctx;
+
+	private ScheduledFuture<?> future;
+
+	/**
+	 * 最近读取时间
+	 */
+	private long read = System.currentTimeMillis();
+
+	/**
+	 * 连续未响应次数
+	 */
+	private int misses;
+
+	/**
+	 * 对端是否支持心跳(收到过Pong)
+	 */
+	private boolean supported;
+
+	public HeartbeatHandler(boolean ping) {
+		super();
+		this.ping = ping;
+	}
+
+	public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+		this.ctx = ctx;
+		// 通道已激活则立即开始(否则等待ChannelActive)
+		if (ctx.channel().isActive()) {
+			this.schedule();
+		}
+	}
+
+	public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+		this.cancel();
+	}
+
+	public void channelActive(ChannelHandlerContext ctx) throws Exception {
+		this.schedule();
+		ctx.fireChannelActive();
+	}
+
+	public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+		this.cancel();
+		ctx.fireChannelInactive();
+	}
+
+	public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+		// 任意数据均表示通道存活
+		this.read = System.currentTimeMillis();
+		this.misses = 0;
+		ByteBuf buffer = ByteBuf.class.cast(msg);
+		if (buffer.readableBytes() != 2 || buffer.getByte(buffer.readerIndex()) != HeartbeatHandler.HEARTBEAT) {
+			ctx.fireChannelRead(msg);
+			return;
+		}
+		try {
+			if (buffer.getByte(buffer.readerIndex() + 1) == HeartbeatHandler.PING) {
+				this.heartbeat(ctx, HeartbeatHandler.PONG);
+			} else {
+				this.supported = true;
+			}
+		} finally {
+			ReferenceCountUtil.release(buffer);
+		}
+	}
+
+	private void schedule() {
+		if (this.ping && this.future == null) {
+			this.future = this.ctx.executor().scheduleAtFixedRate(this.task, HeartbeatHandler.INTERVAL, HeartbeatHandler.INTERVAL, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	private void cancel() {
+		if (this.future != null) {
+			this.future.cancel(false);
+			this.future = null;
+		}
+	}
+
+	private void heartbeat(ChannelHandlerContext ctx, byte type) {
+		ByteBuf buffer = ctx.alloc().ioBuffer(CodecHeader.DEFAULT + 2);
+		buffer.writerIndex(CodecHeader.DEFAULT);
+		buffer.writeByte(HeartbeatHandler.HEARTBEAT).writeByte(type);
+		ctx.writeAndFlush(CodecHeader.header(buffer, 2)).addListener(ExceptionListener.TRACE);
+	}
+
+	private class HeartbeatTask implements Runnable {
+
+		@Override
+		public void run() {
+			// 间隔内存在读取则无需Ping
+			if (System.currentTimeMillis() - HeartbeatHandler.this.read < HeartbeatHandler.INTERVAL) {
+				return;
+			}
+			if (++HeartbeatHandler.this.misses > HeartbeatHandler.MISSES && HeartbeatHandler.this.supported) {
+				HeartbeatHandler.this.cancel();
+				HeartbeatHandler.this.ctx.fireUserEventTriggered(Event.DEAD);
+				return;
+			}
+			HeartbeatHandler.this.heartbeat(HeartbeatHandler.this.ctx, HeartbeatHandler.PING);
+		}
+	}
+}
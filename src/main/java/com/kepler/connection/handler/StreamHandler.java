@@ -0,0 +1,127 @@
+package com.kepler.connection.handler;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.util.ReferenceCountUtil;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import com.kepler.stream.StreamContext;
+
+/**
+ * 流式响应Credit(Server), 每个通道独立(非Sharable)
+ * 
+ * 1, Credit为正数则归还, 为StreamContext.CANCEL则取消(Client已Close)
+ * 2, 通道关闭则取消全部
+ * 
+ * @author kim
+ * 
+ * 2016年4月18日
+ */
+public class StreamHandler extends ChannelInboundHandlerAdapter {
+
+	/**
+	 * ACK -> 剩余Credit
+	 */
+	private final ConcurrentMap<ByteBuffer, Credits> credits = new ConcurrentHashMap<ByteBuffer, Credits>();
+
+	/**
+	 * 注册流式响应
+	 * 
+	 * @param ack
+	 * @param credits 初始Credit
+	 * @return
+	 */
+	public Credits register(byte[] ack, int credits) {
+		Credits semaphore = new Credits(credits);
+		this.credits.put(ByteBuffer.wrap(ack), semaphore);
+		return semaphore;
+	}
+
+	public void unregister(byte[] ack) {
+		this.credits.remove(ByteBuffer.wrap(ack));
+	}
+
+	public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+		ByteBuf buffer = ByteBuf.class.cast(msg);
+		if (!StreamContext.credit(buffer)) {
+			ctx.fireChannelRead(msg);
+			return;
+		}
+		try {
+			byte[] ack = new byte[buffer.skipBytes(1).readUnsignedByte()];
+			buffer.readBytes(ack);
+			int credits = buffer.readInt();
+			Credits semaphore = this.credits.get(ByteBuffer.wrap(ack));
+			// 已结束的流式响应忽略
+			if (semaphore != null) {
+				if (credits > 0) {
+					semaphore.release(credits);
+				} else if (credits == StreamContext.CANCEL) {
+					semaphore.cancel();
+				}
+			}
+		} finally {
+			ReferenceCountUtil.release(buffer);
+		}
+	}
+
+	public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+		// 唤醒等待Credit的线程并终止
+		for (Credits each : this.credits.values()) {
+			each.cancel();
+		}
+		ctx.fireChannelInactive();
+	}
+
+	/**
+	 * 剩余Credit及是否已取消
+	 * 
+	 * @author kim
+	 * 
+	 * 2016年4月18日
+	 */
+	public static class Credits {
+
+		private final Semaphore semaphore;
+
+		volatile private boolean cancelled;
+
+		private Credits(int credits) {
+			super();
+			this.semaphore = new Semaphore(credits);
+		}
+
+		/**
+		 * 获取1个Credit
+		 * 
+		 * @param timeout
+		 * @return 是否获取(已取消则立即返回true, 由调用方检查cancelled)
+		 * @throws InterruptedException
+		 */
+		public boolean acquire(long timeout) throws InterruptedException {
+			return this.cancelled || this.semaphore.tryAcquire(timeout, TimeUnit.MILLISECONDS);
+		}
+
+		private void release(int credits) {
+			this.semaphore.release(credits);
+		}
+
+		/**
+		 * 取消并唤醒等待线程
+		 */
+		private void cancel() {
+			this.cancelled = true;
+			this.semaphore.release(StreamContext.WINDOW);
+		}
+
+		public boolean cancelled() {
+			return this.cancelled;
+		}
+	}
+}
@@ -0,0 +1,204 @@
+package com.kepler.connection.impl;
+
+import io.netty.channel.Channel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.kepler.config.PropertiesUtils;
+import com.kepler.connection.Backpressure;
+
+/**
+ * 基于队列水位的背压
+ * 
+ * 1, 队列深度超过高水位: 暂停提交任务通道的AutoRead
+ * 2, 任务完成或定时检查时队列深度低于低水位: 恢复所有已暂停通道
+ * 3, 线程池已满(队列已满且线程数达到上限): 拒绝, 由调用方返回可重试的过载响应
+ * 4, 使用独立线程池(AbortPolicy), 共享线程池为CallerRunsPolicy, 已满时将在IO线程中执行
+ * 
+ * @author kim
+ * 
+ * 2016年4月16日
+ */
+public class DefaultBackpressure implements Backpressure {
+
+	/**
+	 * 高水位(队列容量比例)
+	 */
+	private static final double HIGH = PropertiesUtils.get(DefaultBackpressure.class.getName().toLowerCase() + ".high", 0.8);
+
+	/**
+	 * 低水位(队列容量比例)
+	 */
+	private static final double LOW = PropertiesUtils.get(DefaultBackpressure.class.getName().toLowerCase() + ".low", 0.3);
+
+	/**
+	 * 超过高水位时直接拒绝(而不是排队并暂停读取)
+	 */
+	private static final boolean REJECT = PropertiesUtils.get(DefaultBackpressure.class.getName().toLowerCase() + ".reject", false);
+
+	/**
+	 * 已暂停通道检查恢复间隔(毫秒), 避免任务均非Reply时无法恢复
+	 */
+	private static final int INTERVAL = PropertiesUtils.get(DefaultBackpressure.class.getName().toLowerCase() + ".interval", 100);
+
+	private static final int CORE = PropertiesUtils.get(DefaultBackpressure.class.getName().toLowerCase() + ".core", Math.max(Runtime.getRuntime().availableProcessors() * 2, 8));
+
+	private static final int MAX = Math.max(DefaultBackpressure.CORE, PropertiesUtils.get(DefaultBackpressure.class.getName().toLowerCase() + ".max", DefaultBackpressure.CORE * 2));
+
+	/**
+	 * 队列长度, 0表示不排队
+	 */
+	private static final int QUEUE = PropertiesUtils.get(DefaultBackpressure.class.getName().toLowerCase() + ".queue", 50);
+
+	private static final int KEEPALIVE = PropertiesUtils.get(DefaultBackpressure.class.getName().toLowerCase() + ".keepalive", 60000);
+
+	private static final Log LOGGER = LogFactory.getLog(DefaultBackpressure.class);
+
+	private final Set<Channel> paused = Collections.newSetFromMap(new ConcurrentHashMap<Channel, Boolean>());
+
+	private final AtomicLong rejected = new AtomicLong();
+
+	/**
+	 * 已满时快速拒绝(AbortPolicy)
+	 */
+	private final ThreadPoolExecutor threads = new ThreadPoolExecutor(DefaultBackpressure.CORE, DefaultBackpressure.MAX, DefaultBackpressure.KEEPALIVE, TimeUnit.MILLISECONDS, DefaultBackpressure.queue(DefaultBackpressure.QUEUE), new DefaultThreadFactory("kepler-server", true), new ThreadPoolExecutor.AbortPolicy());
+
+	public DefaultBackpressure() {
+		super();
+		DefaultBackpressure.LOGGER.info("Backpressure threads (core=" + DefaultBackpressure.CORE + ", max=" + DefaultBackpressure.MAX + ", queue=" + DefaultBackpressure.QUEUE + ") ... ");
+	}
+
+	private static BlockingQueue<Runnable> queue(int queue) {
+		return queue > 0 ? new ArrayBlockingQueue<Runnable>(queue) : new SynchronousQueue<Runnable>();
+	}
+
+	/**
+	 * For Spring
+	 */
+	public void destroy() {
+		this.threads.shutdownNow();
+	}
+
+	/**
+	 * 队列容量
+	 * 
+	 * @return
+	 */
+	private int capacity() {
+		return this.threads.getQueue().size() + this.threads.getQueue().remainingCapacity();
+	}
+
+	private boolean high() {
+		int capacity = this.capacity();
+		// 无队列(SynchronousQueue)时仅依据是否已满
+		return capacity > 0 && this.threads.getQueue().size() >= capacity * DefaultBackpressure.HIGH;
+	}
+
+	private boolean low() {
+		return this.threads.getQueue().size() <= this.capacity() * DefaultBackpressure.LOW;
+	}
+
+	@Override
+	public void execute(Channel channel, Runnable task) throws RejectedExecutionException {
+		try {
+			if (DefaultBackpressure.REJECT && this.high()) {
+				throw new RejectedExecutionException("Threads saturated (queue=" + this.threads.getQueue().size() + ") ... ");
+			}
+			// 已满则由AbortPolicy拒绝(判断与提交原子)
+			this.threads.execute(task);
+		} catch (RejectedExecutionException e) {
+			this.rejected.incrementAndGet();
+			this.pause(channel);
+			throw e;
+		}
+		if (this.high()) {
+			this.pause(channel);
+		}
+	}
+
+	private void pause(Channel channel) {
+		// 仅处理读取中通道
+		if (channel.config().isAutoRead() && this.paused.add(channel)) {
+			channel.config().setAutoRead(false);
+			channel.eventLoop().schedule(new ResumeRunnable(channel), DefaultBackpressure.INTERVAL, TimeUnit.MILLISECONDS);
+			DefaultBackpressure.LOGGER.debug("Channel " + channel.remoteAddress() + " paused (queue=" + this.threads.getQueue().size() + ") ... ");
+		}
+	}
+
+	private void resume(Channel channel) {
+		if (this.paused.remove(channel)) {
+			channel.config().setAutoRead(true);
+			DefaultBackpressure.LOGGER.debug("Channel " + channel.remoteAddress() + " resumed (queue=" + this.threads.getQueue().size() + ") ... ");
+		}
+	}
+
+	@Override
+	public void release() {
+		if (!this.paused.isEmpty() && this.low()) {
+			for (Channel each : this.paused) {
+				this.resume(each);
+			}
+		}
+	}
+
+	@Override
+	public int paused() {
+		return this.paused.size();
+	}
+
+	@Override
+	public int queue() {
+		return this.threads.getQueue().size();
+	}
+
+	@Override
+	public long rejected() {
+		return this.rejected.get();
+	}
+
+	/**
+	 * 定时检查恢复(通道关闭或已恢复则终止)
+	 * 
+	 * @author kim
+	 * 
+	 * 2016年4月16日
+	 */
+	private class ResumeRunnable implements Runnable {
+
+		private final Channel channel;
+
+		private ResumeRunnable(Channel channel) {
+			super();
+			this.channel = channel;
+		}
+
+		@Override
+		public void run() {
+			if (!this.channel.isActive()) {
+				DefaultBackpressure.this.paused.remove(this.channel);
+				return;
+			}
+			if (!DefaultBackpressure.this.paused.contains(this.channel)) {
+				return;
+			}
+			if (DefaultBackpressure.this.low()) {
+				DefaultBackpressure.this.resume(this.channel);
+			} else {
+				this.channel.eventLoop().schedule(this, DefaultBackpressure.INTERVAL, TimeUnit.MILLISECONDS);
+			}
+		}
+	}
+}
@@ -0,0 +1,116 @@
+package com.kepler.connection.impl;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.kepler.config.Profile;
+import com.kepler.config.PropertiesUtils;
+import com.kepler.connection.Bulkheads;
+import com.kepler.protocol.Request;
+
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+/**
+ * 按Profile配置的服务隔离, 首次请求时创建线程池
+ * 
+ * @author kim
+ * 
+ * 2016年4月15日
+ */
+public class DefaultBulkheads implements Bulkheads {
+
+	/**
+	 * 是否开启隔离(Profile)
+	 */
+	private static final String ENABLED_KEY = DefaultBulkheads.class.getName().toLowerCase() + ".enabled";
+
+	private static final boolean ENABLED_DEF = PropertiesUtils.get(DefaultBulkheads.ENABLED_KEY, false);
+
+	/**
+	 * 是否按Method隔离(Profile), 否则按Service
+	 */
+	private static final String METHOD_KEY = DefaultBulkheads.class.getName().toLowerCase() + ".method";
+
+	private static final boolean METHOD_DEF = PropertiesUtils.get(DefaultBulkheads.METHOD_KEY, false);
+
+	private static final String CORE_KEY = DefaultBulkheads.class.getName().toLowerCase() + ".core";
+
+	private static final int CORE_DEF = PropertiesUtils.get(DefaultBulkheads.CORE_KEY, 4);
+
+	private static final String MAX_KEY = DefaultBulkheads.class.getName().toLowerCase() + ".max";
+
+	private static final int MAX_DEF = PropertiesUtils.get(DefaultBulkheads.MAX_KEY, DefaultBulkheads.CORE_DEF * 2);
+
+	/**
+	 * 队列长度, 0表示不排队
+	 */
+	private static final String QUEUE_KEY = DefaultBulkheads.class.getName().toLowerCase() + ".queue";
+
+	private static final int QUEUE_DEF = PropertiesUtils.get(DefaultBulkheads.QUEUE_KEY, 50);
+
+	private static final int KEEPALIVE = PropertiesUtils.get(DefaultBulkheads.class.getName().toLowerCase() + ".keepalive", 60000);
+
+	private static final Log LOGGER = LogFactory.getLog(DefaultBulkheads.class);
+
+	private final Map<String, ThreadPoolExecutor> bulkheads = new ConcurrentHashMap<String, ThreadPoolExecutor>();
+
+	private final Profile profile;
+
+	public DefaultBulkheads(Profile profile) {
+		super();
+		this.profile = profile;
+	}
+
+	/**
+	 * For Spring
+	 */
+	public void destroy() {
+		for (ThreadPoolExecutor each : this.bulkheads.values()) {
+			each.shutdownNow();
+		}
+	}
+
+	@Override
+	public ThreadPoolExecutor get(Request request) {
+		String profile = this.profile.profile(request.service());
+		if (!PropertiesUtils.profile(profile, DefaultBulkheads.ENABLED_KEY, DefaultBulkheads.ENABLED_DEF)) {
+			return null;
+		}
+		String name = request.service().service() + ":" + request.service().versionAndCatalog() + (PropertiesUtils.profile(profile, DefaultBulkheads.METHOD_KEY, DefaultBulkheads.METHOD_DEF) ? "#" + request.method() : "");
+		ThreadPoolExecutor bulkhead = this.bulkheads.get(name);
+		return bulkhead != null ? bulkhead : this.create(name, profile);
+	}
+
+	private synchronized ThreadPoolExecutor create(String name, String profile) {
+		// Double check
+		ThreadPoolExecutor bulkhead = this.bulkheads.get(name);
+		if (bulkhead != null) {
+			return bulkhead;
+		}
+		int core = PropertiesUtils.profile(profile, DefaultBulkheads.CORE_KEY, DefaultBulkheads.CORE_DEF);
+		int max = Math.max(core, PropertiesUtils.profile(profile, DefaultBulkheads.MAX_KEY, DefaultBulkheads.MAX_DEF));
+		int queue = PropertiesUtils.profile(profile, DefaultBulkheads.QUEUE_KEY, DefaultBulkheads.QUEUE_DEF);
+		// 已满时快速拒绝(AbortPolicy)
+		this.bulkheads.put(name, bulkhead = new ThreadPoolExecutor(core, max, DefaultBulkheads.KEEPALIVE, TimeUnit.MILLISECONDS, this.queue(queue), new DefaultThreadFactory("kepler-bulkhead-" + name, true), new ThreadPoolExecutor.AbortPolicy()));
+		DefaultBulkheads.LOGGER.info("Bulkhead " + name + " created (core=" + core + ", max=" + max + ", queue=" + queue + ") ... ");
+		return bulkhead;
+	}
+
+	private BlockingQueue<Runnable> queue(int queue) {
+		return queue > 0 ? new ArrayBlockingQueue<Runnable>(queue) : new SynchronousQueue<Runnable>();
+	}
+
+	@Override
+	public Map<String, ThreadPoolExecutor> bulkheads() {
+		return Collections.unmodifiableMap(this.bulkheads);
+	}
+}
@@ -3,35 +3,48 @@ package com.kepler.connection.impl;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.bootstrap.ChannelFactory;
 import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.channel.unix.DomainSocketAddress;
 import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
-import io.netty.handler.codec.LengthFieldPrepender;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.TimerTask;
+import io.netty.util.concurrent.DefaultThreadFactory;
 
+import java.io.InputStream;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import com.kepler.KeplerChannelException;
 import com.kepler.KeplerException;
 import com.kepler.KeplerTimeoutException;
 import com.kepler.ack.AckTimeOut;
+import com.kepler.ack.Status;
 import com.kepler.ack.impl.AckFuture;
+import com.kepler.ack.impl.Acks;
 import com.kepler.admin.transfer.Collector;
 import com.kepler.channel.ChannelContext;
 import com.kepler.channel.ChannelInvoker;
@@ -39,16 +52,28 @@ import com.kepler.config.Profile;
 import com.kepler.config.PropertiesUtils;
 import com.kepler.connection.Connect;
 import com.kepler.connection.Connects;
+import com.kepler.connection.handler.BatchHandler;
 import com.kepler.connection.handler.CodecHeader;
+import com.kepler.connection.handler.DictionaryHandler;
+import com.kepler.connection.handler.CodecCompress;
 import com.kepler.connection.handler.DecoderHandler;
 import com.kepler.connection.handler.EncoderHandler;
+import com.kepler.connection.handler.FlushHandler;
+import com.kepler.connection.handler.HeartbeatHandler;
 import com.kepler.host.Host;
 import com.kepler.host.HostLocks;
 import com.kepler.host.HostsContext;
 import com.kepler.host.impl.SegmentLocks;
+import com.kepler.host.impl.ServerHost;
 import com.kepler.protocol.Request;
 import com.kepler.protocol.Response;
+import com.kepler.protocol.impl.DefaultRequest;
+import com.kepler.protocol.impl.DefaultResponse;
 import com.kepler.serial.Serials;
+import com.kepler.stream.Chunk;
+import com.kepler.stream.Fragment;
+import com.kepler.stream.FragmentContext;
+import com.kepler.stream.StreamIterator;
 import com.kepler.service.Quiet;
 import com.kepler.token.TokenContext;
 import com.kepler.traffic.Traffic;
@@ -83,15 +108,35 @@ public class DefaultConnect implements Connect {
 	private static final int BUFFER_RECV = PropertiesUtils.get(DefaultConnect.class.getName().toLowerCase() + ".buffer_recv", Integer.MAX_VALUE);
 
 	/**
-	 * 监听待重连线程数量
+	 * 每个Host允许建立的连接数量(连接池)
 	 */
-	private static final int ESTABLISH_THREAD = PropertiesUtils.get(DefaultConnect.class.getName().toLowerCase() + ".establish_thread", 1);
+	private static final int CHANNELS = Math.max(1, PropertiesUtils.get(DefaultConnect.class.getName().toLowerCase() + ".channels", 1));
 
 	/**
 	 * 是否允许本地回路
 	 */
 	private static final boolean ESTABLISH_LOOP = PropertiesUtils.get(DefaultConnect.class.getName().toLowerCase() + ".establish_loop", true);
 
+	/**
+	 * 每个通道在途请求上限, 小于等于0则不限制
+	 */
+	private static final int INFLIGHT = PropertiesUtils.get(DefaultConnect.class.getName().toLowerCase() + ".inflight", 4096);
+
+	/**
+	 * 达到在途上限时最大排队数量, 超过则立即失败
+	 */
+	private static final int INFLIGHT_QUEUE = PropertiesUtils.get(DefaultConnect.class.getName().toLowerCase() + ".inflight_queue", 1024);
+
+	/**
+	 * 排队(含等待通道可写)最大时间(毫秒), 不超过请求超时. 0则立即失败
+	 */
+	private static final int INFLIGHT_WAIT = PropertiesUtils.get(DefaultConnect.class.getName().toLowerCase() + ".inflight_wait", 100);
+
+	/**
+	 * 同主机是否优先使用Unix Domain Socket(仅Epoll)
+	 */
+	private static final boolean ESTABLISH_DOMAIN = PropertiesUtils.get(DefaultConnect.class.getName().toLowerCase() + ".establish_domain", true);
+
 	/**
 	 * 是否使用共享Shared EventLoopGroup
 	 */
@@ -102,30 +147,40 @@ public class DefaultConnect implements Connect {
 	 */
 	private static final int EVENTLOOP_THREAD = PropertiesUtils.get(DefaultConnect.class.getName().toLowerCase() + ".eventloop_thread", Runtime.getRuntime().availableProcessors() * 2);
 
-	private static final ChannelFactory<SocketChannel> FACTORY = new DefaultChannelFactory<SocketChannel>(NioSocketChannel.class);
+	/**
+	 * ACK到期时间轮精度(毫秒)及槽数量
+	 */
+	private static final int TIMER_TICK = PropertiesUtils.get(DefaultConnect.class.getName().toLowerCase() + ".timer_tick", 100);
+
+	private static final int TIMER_WHEEL = PropertiesUtils.get(DefaultConnect.class.getName().toLowerCase() + ".timer_wheel", 512);
+
+	private static final ChannelFactory<SocketChannel> FACTORY = Transport.ACTUAL.client();
 
 	private static final Log LOGGER = LogFactory.getLog(DefaultConnect.class);
 
 	/**
 	 * 共享EventLoopGroup, 如果没有开启则为Null
 	 */
-	private final EventLoopGroup shared = DefaultConnect.EVENTLOOP_SHARED ? new NioEventLoopGroup(DefaultConnect.EVENTLOOP_THREAD) : null;
+	private final EventLoopGroup shared = DefaultConnect.EVENTLOOP_SHARED ? Transport.ACTUAL.eventloop(DefaultConnect.EVENTLOOP_THREAD) : null;
 
-	private final InitializerFactory inits = new InitializerFactory();
+	/**
+	 * ACK到期(所有通道共享), 不依赖等待线程
+	 */
+	private final HashedWheelTimer timer = new HashedWheelTimer(new DefaultThreadFactory("kepler-ack-timer", true), DefaultConnect.TIMER_TICK, TimeUnit.MILLISECONDS, DefaultConnect.TIMER_WHEEL);
 
-	private final AtomicBoolean shutdown = new AtomicBoolean();
+	private final InitializerFactory inits = new InitializerFactory();
 
 	/**
-	 * 建立连接任务,无状态
+	 * Host连接中数量(尚未完成)
 	 */
-	private final Runnable establish = new EstablishRunnable();
-
-	private final HostLocks locks = new SegmentLocks();
+	private final ConcurrentMap<Host, AtomicInteger> connecting = new ConcurrentHashMap<Host, AtomicInteger>();
 
 	/**
-	 * ACK
+	 * Unix Domain Socket连接失败的Host(此后使用TCP)
 	 */
-	private final Acks acks = new Acks();
+	private final Set<Host> domains = Collections.newSetFromMap(new ConcurrentHashMap<Host, Boolean>());
+
+	private final HostLocks locks = new SegmentLocks();
 
 	private final Host local;
 
@@ -168,20 +223,16 @@ public class DefaultConnect implements Connect {
 	}
 
 	public void init() {
-		// 开启重连线程
-		for (int index = 0; index < DefaultConnect.ESTABLISH_THREAD; index++) {
-			this.threads.execute(this.establish);
-		}
-		// 黏包
-		this.inits.add(new LengthFieldPrepender(CodecHeader.DEFAULT));
-		// 编码/解码
+		// 重连由时间轮调度
+		this.connects.bind(this, this.timer);
+		// 编码(含黏包)/解码
 		this.inits.add(new EncoderHandler(DefaultConnect.this.traffic, DefaultConnect.this.serials, Request.class));
 		this.inits.add(new DecoderHandler(DefaultConnect.this.traffic, DefaultConnect.this.serials, Response.class));
 	}
 
 	public void destroy() throws Exception {
-		this.shutdown.set(true);
 		this.release4shared();
+		this.timer.stop();
 	}
 
 	/**
@@ -210,30 +261,46 @@ public class DefaultConnect implements Connect {
 		}
 	}
 
-	private void banAndRelease(ChannelInvoker invoker) throws Exception {
-		this.context.ban(invoker.host());
-		invoker.releaseAtOnce();
-	}
-
-	private void banAndRelease(Host host) throws Exception {
-		// 加入Ban名单(Close并不意味着连接永远移除.只要ZK中未注销, 对应Host将再次尝试重连)
-		this.context.ban(host);
+	/**
+	 * 从连接池移除指定通道, 如果Host已不存在其他通道则Ban
+	 * 
+	 * @param invoker
+	 * @throws Exception
+	 */
+	private void release(ChannelInvoker invoker) throws Exception {
 		// 如果多个请求(Request)同时出现故障并关闭导致再次返回Invoker为Null
-		ChannelInvoker invoker = this.channels.del(host);
-		if (invoker != null) {
+		if (this.channels.del(invoker.host(), invoker) != null) {
 			invoker.release();
 		}
+		if (this.channels.contain(invoker.host())) {
+			// 连接池中仍存在其他通道, 保留Host并尝试补齐连接
+			this.connects.put(invoker.host());
+		} else {
+			// 加入Ban名单(Close并不意味着连接永远移除.只要ZK中未注销, 对应Host将再次尝试重连)
+			this.context.ban(invoker.host());
+		}
 	}
 
 	public void connect(Host host) throws Exception {
 		synchronized (this.locks.get(host)) {
-			// 1个Host仅允许建立1个连接
-			if (!this.channels.contain(host)) {
+			// 1个Host允许建立DefaultConnect.CHANNELS个连接(含连接中), 补齐连接池. 异步连接, 不在锁内等待
+			for (int index = this.channels.size(host) + this.connecting(host).get(); index < DefaultConnect.CHANNELS; index++) {
 				this.connect(new InvokerHandler(new Bootstrap(), host));
 			}
 		}
-		// 连接成功或已连接则激活该Host所有服务
-		this.context.active(host);
+		// 已连接则激活该Host所有服务(否则连接成功后激活)
+		if (this.channels.contain(host)) {
+			this.context.active(host);
+		}
+	}
+
+	private AtomicInteger connecting(Host host) {
+		AtomicInteger connecting = this.connecting.get(host);
+		if (connecting == null) {
+			AtomicInteger exists = this.connecting.putIfAbsent(host, connecting = new AtomicInteger());
+			connecting = exists != null ? exists : connecting;
+		}
+		return connecting;
 	}
 
 	/**
@@ -242,27 +309,109 @@ public class DefaultConnect implements Connect {
 	 * @return
 	 */
 	private EventLoopGroup eventloop() {
-		return DefaultConnect.EVENTLOOP_SHARED ? this.shared : new NioEventLoopGroup(DefaultConnect.EVENTLOOP_THREAD);
+		return DefaultConnect.EVENTLOOP_SHARED ? this.shared : Transport.ACTUAL.eventloop(DefaultConnect.EVENTLOOP_THREAD);
+	}
+
+	/**
+	 * 同主机且对端发布了Unix Domain Socket
+	 * 
+	 * @param host
+	 * @return 不可用则返回Null
+	 */
+	private String domain(Host host) {
+		if (DefaultConnect.ESTABLISH_DOMAIN && Transport.ACTUAL.client4domain() != null && host instanceof ServerHost && host.loop(this.local) && !this.domains.contains(host)) {
+			return ServerHost.class.cast(host).domain();
+		}
+		return null;
 	}
 
 	private void connect(InvokerHandler invoker) throws Exception {
-		try {
-			// 是否为回路IP
-			SocketAddress remote = new InetSocketAddress(invoker.host().loop(this.local) && DefaultConnect.ESTABLISH_LOOP ? Host.LOOP : invoker.host().host(), invoker.host().port());
-			invoker.bootstrap().group(this.eventloop()).option(ChannelOption.CONNECT_TIMEOUT_MILLIS, DefaultConnect.TIMEOUT).channelFactory(DefaultConnect.FACTORY).handler(DefaultConnect.this.inits.factory(invoker)).remoteAddress(remote).connect().sync();
-			// 连接成功, 加入通道. 异常则跳过
-			this.channels.put(invoker.host(), invoker);
-		} catch (Throwable e) {
-			DefaultConnect.LOGGER.info("Connect (to " + invoker.host().address() + ") failed ...", e);
-			// 关闭并尝试重连
-			this.banAndRelease(invoker);
-			throw e;
+		this.connecting(invoker.host()).incrementAndGet();
+		String domain = this.domain(invoker.host());
+		if (domain != null) {
+			invoker.bootstrap().group(this.eventloop()).option(ChannelOption.CONNECT_TIMEOUT_MILLIS, DefaultConnect.TIMEOUT).channelFactory(Transport.ACTUAL.client4domain()).handler(DefaultConnect.this.inits.factory(invoker)).remoteAddress(new DomainSocketAddress(domain)).connect().addListener(new EstablishListener(invoker, true));
+			return;
+		}
+		// 是否为回路IP
+		SocketAddress remote = new InetSocketAddress(invoker.host().loop(this.local) && DefaultConnect.ESTABLISH_LOOP ? Host.LOOP : invoker.host().host(), invoker.host().port());
+		Transport.ACTUAL.options4client(invoker.bootstrap()).group(this.eventloop()).option(ChannelOption.CONNECT_TIMEOUT_MILLIS, DefaultConnect.TIMEOUT).channelFactory(DefaultConnect.FACTORY).handler(DefaultConnect.this.inits.factory(invoker)).remoteAddress(remote).connect().addListener(new EstablishListener(invoker, false));
+	}
+
+	/**
+	 * 连接完成(EventLoop线程)
+	 * 
+	 * @author kim
+	 * 
+	 * 2016年4月17日
+	 */
+	private class EstablishListener implements ChannelFutureListener {
+
+		private final InvokerHandler invoker;
+
+		/**
+		 * 是否为Unix Domain Socket
+		 */
+		private final boolean domain;
+
+		private EstablishListener(InvokerHandler invoker, boolean domain) {
+			super();
+			this.invoker = invoker;
+			this.domain = domain;
+		}
+
+		@Override
+		public void operationComplete(ChannelFuture future) throws Exception {
+			Host host = this.invoker.host();
+			if (future.isSuccess()) {
+				// 连接成功, 加入通道后释放连接中计数(先释放则并发Connect可能超出DefaultConnect.CHANNELS)
+				DefaultConnect.this.channels.put(host, this.invoker);
+				DefaultConnect.this.connecting(host).decrementAndGet();
+				// 重置重连延迟并激活该Host所有服务
+				DefaultConnect.this.connects.reset(host);
+				DefaultConnect.this.context.active(host);
+				return;
+			}
+			DefaultConnect.this.connecting(host).decrementAndGet();
+			DefaultConnect.LOGGER.info("Connect (to " + host.address() + ") failed ...", future.cause());
+			if (this.domain) {
+				// 降级为TCP
+				DefaultConnect.this.domains.add(host);
+			}
+			// 禁止在EventLoop线程关闭Boostrap
+			this.invoker.release();
+			if (DefaultConnect.this.channels.contain(host)) {
+				// 连接池中仍存在其他通道, 稍后补齐
+				DefaultConnect.this.connects.put(host);
+			} else {
+				// Ban并尝试重连(Ban后由HostsContext加入重连)
+				DefaultConnect.this.context.ban(host);
+			}
 		}
 	}
 
 	// 非共享
 	private class InvokerHandler extends ChannelInboundHandlerAdapter implements ChannelInvoker {
 
+		/**
+		 * 当前通道ACK
+		 */
+		private final Acks acks = new Acks(DefaultConnect.INFLIGHT, DefaultConnect.INFLIGHT_QUEUE);
+
+		/**
+		 * 未结束的流式响应
+		 */
+		private final ConcurrentMap<ByteBuffer, StreamIterator> streams = new ConcurrentHashMap<ByteBuffer, StreamIterator>();
+
+		/**
+		 * 分片ID
+		 */
+		private final AtomicInteger fragments = new AtomicInteger();
+
+		/**
+		 * 等待通道可写(低于低水位)
+		 */
+		private final Object writable = new Object();
+
 		private final Host target;
 
 		private final Bootstrap bootstrap;
@@ -283,6 +432,10 @@ public class DefaultConnect implements Connect {
 			return this.target;
 		}
 
+		public int pending() {
+			return this.acks.size();
+		}
+
 		public void close() {
 			// 仅在通道尚处激活状态时关闭
 			if (this.ctx != null && this.ctx.channel().isActive()) {
@@ -309,18 +462,50 @@ public class DefaultConnect implements Connect {
 			return true;
 		}
 
+		public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+			// 初始化赋值(早于ChannelActive, 连接成功回调后即加入连接池, 此时ChannelActive可能尚未触发)
+			this.ctx = ctx;
+		}
+
 		public void channelActive(ChannelHandlerContext ctx) throws Exception {
 			DefaultConnect.LOGGER.info("Connect active (" + DefaultConnect.this.local + " to " + this.target + ") ...");
-			// 初始化赋值
-			(this.ctx = ctx).fireChannelActive();
+			ctx.fireChannelActive();
 		}
 
 		public void channelInactive(ChannelHandlerContext ctx) throws Exception {
 			DefaultConnect.LOGGER.info("Connect inactive (" + DefaultConnect.this.local + " to " + this.target + ") ...");
-			DefaultConnect.this.banAndRelease(this.target);
+			DefaultConnect.this.release(this);
+			this.failure();
+			this.wakeup();
 			ctx.fireChannelInactive();
 		}
 
+		public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+			// 心跳失效, 仅关闭当前通道(关闭后由Inactive释放: 存在其他通道则补齐连接池, 否则Ban)
+			if (HeartbeatHandler.Event.DEAD.equals(evt)) {
+				DefaultConnect.LOGGER.warn("Heartbeat dead (" + DefaultConnect.this.local + " to " + this.target + ") ...");
+				ctx.close().addListener(ExceptionListener.TRACE);
+				return;
+			}
+			ctx.fireUserEventTriggered(evt);
+		}
+
+		/**
+		 * 通道关闭, 等待中ACK立即失败(无需等待超时)
+		 */
+		private void failure() {
+			for (AckFuture each : this.acks.drain()) {
+				each.response(new DefaultResponse(each.request().serial(), each.request().ack(), new KeplerChannelException("Channel (" + DefaultConnect.this.local + " to " + this.target + ") closed ... ")));
+			}
+			// 未结束的流式响应
+			for (ByteBuffer each : this.streams.keySet()) {
+				StreamIterator stream = this.streams.remove(each);
+				if (stream != null) {
+					stream.failure(new KeplerChannelException("Channel (" + DefaultConnect.this.local + " to " + this.target + ") closed ... "));
+				}
+			}
+		}
+
 		public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
 			this.exceptionPrint(cause);
 			// 关闭通道, 并启动Inactive
@@ -343,20 +528,116 @@ public class DefaultConnect implements Connect {
 		public Object invoke(Request request) throws Throwable {
 			// DefaultConnect.this.token.set(request, this.target.token())增加Token
 			AckFuture future = new AckFuture(DefaultConnect.this.collector, DefaultConnect.this.local, this.target, DefaultConnect.this.token.set(request, this), DefaultConnect.this.profiles, DefaultConnect.this.quiet);
+			// 在途上限, FIFO排队(不超过请求超时)
+			long wait = Math.min(DefaultConnect.INFLIGHT_WAIT, future.deadline());
+			if (!this.acks.acquire(wait)) {
+				throw future.overload();
+			}
 			try {
-				// 加入ACK -> 发送消息 -> 等待ACK
-				this.ctx.writeAndFlush(DefaultConnect.this.acks.put(future).request()).addListener(ExceptionListener.TRACE);
+				// 加入ACK -> 注册到期 -> 等待可写 -> 发送消息 -> 等待ACK
+				this.acks.put(future).expiration(DefaultConnect.this.timer.newTimeout(new ExpireTask(future), future.deadline(), TimeUnit.MILLISECONDS));
+				if (!this.writable(wait - future.elapse())) {
+					throw future.overload();
+				}
+				this.ctx.writeAndFlush(CodecCompress.frame(this.fragment(future), CodecCompress.threshold(DefaultConnect.this.profiles, request.service()))).addListener(new SendListener(future));
 				// 如果为Future或@Async则立即返回, 负责线程等待
 				return future.request().async() ? future : future.get();
 			} catch (Throwable exception) {
-				// 任何异常均释放ACK
-				DefaultConnect.this.acks.del(request.ack());
-				// Timeout处理
-				this.timeout(future, exception);
+				// 任何异常均释放ACK, 实际移除时处理Timeout(否则已由时间轮处理)
+				if (this.acks.del(request.ack()) != null) {
+					this.timeout(future, exception);
+				}
 				throw exception;
 			}
 		}
 
+		/**
+		 * 大参数先行分片发送, 返回使用Fragment占位的Request副本(原始Request可用于重试)
+		 * 
+		 * @param future
+		 * @return
+		 * @throws Exception
+		 */
+		private Request fragment(AckFuture future) throws Exception {
+			Request request = future.request();
+			int threshold = FragmentContext.threshold(DefaultConnect.this.profiles, request.service());
+			Object[] args = null;
+			for (int index = 0; index < request.args().length; index++) {
+				if (FragmentContext.fragment(request.args()[index], threshold)) {
+					args = args != null ? args : Arrays.copyOf(request.args(), request.args().length);
+					args[index] = this.fragment(future, request.args()[index]);
+				}
+			}
+			return args != null ? new DefaultRequest(request, request.ack(), args) : request;
+		}
+
+		/**
+		 * 逐个分片写入(不合并Flush), 分片之间允许其他请求穿插
+		 * 
+		 * @param future
+		 * @param arg
+		 * @return
+		 * @throws Exception
+		 */
+		private Fragment fragment(AckFuture future, Object arg) throws Exception {
+			Fragment fragment = new Fragment(this.fragments.incrementAndGet());
+			if (arg instanceof byte[]) {
+				byte[] bytes = byte[].class.cast(arg);
+				for (int offset = 0; offset < bytes.length; offset += FragmentContext.PART) {
+					this.part(future, fragment, bytes.length, bytes, offset, Math.min(FragmentContext.PART, bytes.length - offset));
+				}
+			} else {
+				// InputStream由调用方关闭
+				InputStream input = InputStream.class.cast(arg);
+				byte[] bytes = new byte[FragmentContext.PART];
+				for (int read = input.read(bytes); read != -1; read = input.read(bytes)) {
+					this.part(future, fragment, -1, bytes, 0, read);
+				}
+			}
+			return fragment;
+		}
+
+		private void part(AckFuture future, Fragment fragment, int total, byte[] bytes, int offset, int length) throws Exception {
+			// 分片发送时间以请求剩余时间为限
+			if (!this.writable(future.deadline() - future.elapse())) {
+				throw future.overload();
+			}
+			this.ctx.writeAndFlush(FragmentContext.part(this.ctx.alloc(), fragment.id(), total, bytes, offset, length)).addListener(new SendListener(future));
+		}
+
+		/**
+		 * 通道不可写(超过高水位)则等待, EventLoop线程内不等待
+		 * 
+		 * @param timeout
+		 * @return 是否可写
+		 * @throws InterruptedException
+		 */
+		private boolean writable(long timeout) throws InterruptedException {
+			if (this.ctx.channel().isWritable() || this.ctx.executor().inEventLoop()) {
+				return true;
+			}
+			long deadline = System.currentTimeMillis() + timeout;
+			synchronized (this.writable) {
+				for (long remain = timeout; !this.ctx.channel().isWritable() && this.ctx.channel().isActive() && remain > 0; remain = deadline - System.currentTimeMillis()) {
+					this.writable.wait(remain);
+				}
+			}
+			return this.ctx.channel().isWritable();
+		}
+
+		public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+			if (ctx.channel().isWritable()) {
+				this.wakeup();
+			}
+			ctx.fireChannelWritabilityChanged();
+		}
+
+		private void wakeup() {
+			synchronized (this.writable) {
+				this.writable.notifyAll();
+			}
+		}
+
 		/**
 		 * Timeout处理, DefaultConnect.this.collector.peek(ack).timeout()当前周期Timeout次数
 		 * 
@@ -367,20 +648,126 @@ public class DefaultConnect implements Connect {
 		private void timeout(AckFuture ack, Throwable exception) {
 			// 仅处理KeplerTimeoutException
 			if (KeplerTimeoutException.class.isAssignableFrom(exception.getClass())) {
-				DefaultConnect.this.timeout.timeout(this, ack, DefaultConnect.this.collector.peek(ack).timeout());
+				this.timeout(ack);
 			}
 		}
 
+		private void timeout(AckFuture ack) {
+			DefaultConnect.this.timeout.timeout(this, ack, DefaultConnect.this.collector.peek(ack).timeout());
+		}
+
 		@Override
 		public void channelRead(ChannelHandlerContext ctx, Object message) throws Exception {
 			Response response = Response.class.cast(message);
+			// 流式响应后续分片
+			if (!this.streams.isEmpty() && this.stream(response)) {
+				return;
+			}
 			// 移除ACK
-			AckFuture future = DefaultConnect.this.acks.del(response.ack());
+			AckFuture future = this.acks.del(response.ack());
 			// 如获取不到ACK表示已超时
 			if (future != null) {
-				future.response(response);
+				future.response(this.chunk(response));
+			} else if (response.valid() && response.response() instanceof Chunk) {
+				// 已Close的流式响应, 取消前已发送的分片
+				DefaultConnect.LOGGER.debug("Discard chunk for closed stream: " + Arrays.toString(response.ack()) + " (" + this.target + ") ...");
 			} else {
-				DefaultConnect.LOGGER.warn("Missing ack for response: " + response.ack() + " (" + this.target + "), may be timeout ...");
+				DefaultConnect.LOGGER.warn("Missing ack for response: " + Arrays.toString(response.ack()) + " (" + this.target + "), may be timeout ...");
+			}
+		}
+
+		/**
+		 * 首个分片, 转换为StreamIterator响应
+		 * 
+		 * @param response
+		 * @return
+		 */
+		private Response chunk(Response response) {
+			if (!response.valid() || !(response.response() instanceof Chunk)) {
+				return response;
+			}
+			StreamIterator stream = new StreamIterator(this.streams, this.ctx.channel(), response.serial(), response.ack());
+			if (!stream.offer(response)) {
+				this.streams.put(ByteBuffer.wrap(response.ack()), stream);
+			}
+			return new DefaultResponse(response.serial(), response.ack(), stream);
+		}
+
+		/**
+		 * 后续分片
+		 * 
+		 * @param response
+		 * @return 是否为流式响应
+		 */
+		private boolean stream(Response response) {
+			ByteBuffer ack = ByteBuffer.wrap(response.ack());
+			StreamIterator stream = this.streams.get(ack);
+			if (stream == null) {
+				return false;
+			}
+			// 最后分片或异常则移除
+			if (stream.offer(response)) {
+				this.streams.remove(ack);
+			}
+			return true;
+		}
+
+		/**
+		 * 发送失败(编码/写入), 立即移除ACK并以异常响应(无需等待超时)
+		 * 
+		 * @author kim
+		 * 
+		 * 2016年4月18日
+		 */
+		private class SendListener implements ChannelFutureListener {
+
+			private final AckFuture future;
+
+			private SendListener(AckFuture future) {
+				super();
+				this.future = future;
+			}
+
+			@Override
+			public void operationComplete(ChannelFuture future) throws Exception {
+				if (future.isSuccess()) {
+					return;
+				}
+				DefaultConnect.LOGGER.warn("Send (" + DefaultConnect.this.local + " to " + InvokerHandler.this.target + ") failed: " + future.cause());
+				// 移除者负责响应(释放在途许可), 否则已由响应/时间轮处理
+				if (InvokerHandler.this.acks.del(this.future.request().ack()) != null) {
+					this.future.response(new DefaultResponse(this.future.request().serial(), this.future.request().ack(), new KeplerChannelException("Send (" + DefaultConnect.this.local + " to " + InvokerHandler.this.target + ") failed: " + future.cause())));
+				}
+			}
+		}
+
+		/**
+		 * ACK到期, 移除并标记超时(包括未调用Get的Future/@Async)
+		 * 
+		 * @author kim
+		 * 
+		 * 2016年4月13日
+		 */
+		private class ExpireTask implements TimerTask {
+
+			private final AckFuture future;
+
+			private ExpireTask(AckFuture future) {
+				super();
+				this.future = future;
+			}
+
+			@Override
+			public void run(Timeout timeout) throws Exception {
+				// 已响应或已释放
+				if (InvokerHandler.this.acks.del(this.future.request().ack()) == null) {
+					return;
+				}
+				// 移除者负责Timeout处理(等待线程可能已先行标记超时)
+				this.future.expire();
+				if (Status.TIMEOUT.equals(this.future.status())) {
+					InvokerHandler.this.timeout(this.future);
+				}
 			}
 		}
 	}
@@ -393,14 +780,29 @@ public class DefaultConnect implements Connect {
 			this.handlers.add(handler);
 		}
 
-		public ChannelInitializer<SocketChannel> factory(final InvokerHandler handler) {
-			return new ChannelInitializer<SocketChannel>() {
-				protected void initChannel(SocketChannel channel) throws Exception {
-					// 指定读写缓存
-					channel.config().setReceiveBufferSize(DefaultConnect.BUFFER_RECV);
-					channel.config().setSendBufferSize(DefaultConnect.BUFFER_SEND);
+		public ChannelInitializer<Channel> factory(final InvokerHandler handler) {
+			return new ChannelInitializer<Channel>() {
+				protected void initChannel(Channel channel) throws Exception {
+					// TCP通道指定读写缓存(Unix Domain Socket无此选项)
+					if (channel instanceof SocketChannel) {
+						SocketChannel.class.cast(channel).config().setReceiveBufferSize(DefaultConnect.BUFFER_RECV);
+						SocketChannel.class.cast(channel).config().setSendBufferSize(DefaultConnect.BUFFER_SEND);
+					}
 					channel.config().setAllocator(PooledByteBufAllocator.DEFAULT);
+					Transport.watermark(channel.config());
 					channel.pipeline().addLast(new LengthFieldBasedFrameDecoder(DefaultConnect.FRAGEMENT, 0, CodecHeader.DEFAULT, 0, CodecHeader.DEFAULT));
+					// 合并Flush(每个通道独立)
+					if (FlushHandler.ENABLED) {
+						channel.pipeline().addLast(new FlushHandler());
+					}
+					// 心跳(每个通道独立)
+					if (HeartbeatHandler.ENABLED) {
+						channel.pipeline().addLast(new HeartbeatHandler(true));
+					}
+					// 批量发送/拆分(每个通道独立)
+					channel.pipeline().addLast(new BatchHandler(DefaultConnect.this.traffic));
+					// 字典协商(每个通道独立)
+					channel.pipeline().addLast(new DictionaryHandler(true));
 					for (ChannelHandler each : InitializerFactory.this.handlers) {
 						channel.pipeline().addLast(each);
 					}
@@ -431,63 +833,4 @@ public class DefaultConnect implements Connect {
 			}
 		}
 	}
-
-	/**
-	 * 重连线程
-	 * 
-	 * @author kim 2015年7月20日
-	 */
-	private class EstablishRunnable implements Runnable {
-		@Override
-		public void run() {
-			while (!DefaultConnect.this.shutdown.get()) {
-				try {
-					Host host = DefaultConnect.this.connects.get();
-					if (host != null) {
-						DefaultConnect.this.connect(host);
-					}
-				} catch (Throwable e) {
-					DefaultConnect.LOGGER.debug(e.getMessage(), e);
-				}
-			}
-			DefaultConnect.LOGGER.warn(this.getClass() + " shutdown on thread (" + Thread.currentThread().getId() + ")");
-		}
-	}
-
-	private class Acks {
-
-		private final Map<Bytes, AckFuture> waitings = new ConcurrentHashMap<Bytes, AckFuture>();
-
-		public AckFuture put(AckFuture future) {
-			this.waitings.put(new Bytes(future.request().ack()), future);
-			return future;
-		}
-
-		public AckFuture del(byte[] ack) {
-			return this.waitings.remove(new Bytes(ack));
-		}
-	}
-
-	private class Bytes {
-
-		private final byte[] bytes;
-
-		private Bytes(byte[] bytes) {
-			this.bytes = bytes;
-		}
-
-		@Override
-		public boolean equals(Object obj) {
-			if (this == obj) {
-				return true;
-			}
-			Bytes that = Bytes.class.cast(obj);
-			return Arrays.equals(this.bytes, that.bytes);
-		}
-
-		@Override
-		public int hashCode() {
-			return Arrays.hashCode(this.bytes);
-		}
-	}
 }
@@ -1,64 +1,158 @@
 package com.kepler.connection.impl;
 
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.DelayQueue;
-import java.util.concurrent.Delayed;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 
 import com.kepler.config.PropertiesUtils;
-import com.kepler.connection.ConnectHost;
+import com.kepler.connection.Connect;
 import com.kepler.connection.Connects;
 import com.kepler.host.Host;
 
 /**
- * 延迟重连
+ * 延迟重连, 指数退避 + 随机抖动(避免集群重启时客户端同时重连)
+ * 
+ * 1, 延迟 = min(MAX, DELAY * 2 ^ 连续失败次数), 实际延迟在[延迟 / 2, 延迟)之间随机
+ * 2, 时间轮仅负责调度, 连接(DNS解析, 创建EventLoop等堵塞操作)由独立线程执行, 避免延迟ACK超时处理
  * 
  * @author kim 2015年7月10日
  */
 public class DefaultConnects implements Connects {
 
-	private static final int INTERVAL = PropertiesUtils.get(DefaultConnects.class.getName().toLowerCase() + ".interval", 60000);
+	/**
+	 * 初始延迟
+	 */
+	private static final int DELAY = Math.max(1, PropertiesUtils.get(DefaultConnects.class.getName().toLowerCase() + ".delay", 1000));
+
+	/**
+	 * 最大延迟
+	 */
+	private static final int MAX = Math.max(DefaultConnects.DELAY, PropertiesUtils.get(DefaultConnects.class.getName().toLowerCase() + ".max", 60000));
+
+	private static final Log LOGGER = LogFactory.getLog(DefaultConnects.class);
+
+	/**
+	 * Host连续失败次数
+	 */
+	private final ConcurrentMap<Host, AtomicInteger> attempts = new ConcurrentHashMap<Host, AtomicInteger>();
 
-	private static final int DELAY = PropertiesUtils.get(DefaultConnects.class.getName().toLowerCase() + ".delay", 5000);
+	/**
+	 * 已调度尚未执行的Host
+	 */
+	private final Set<Host> scheduled = Collections.newSetFromMap(new ConcurrentHashMap<Host, Boolean>());
 
-	private final BlockingQueue<ConnectHost> queue = new DelayQueue<ConnectHost>();
+	/**
+	 * 重连线程(同一Host仅调度一次, 队列长度不超过Host数量)
+	 */
+	private final ExecutorService executor = Executors.newSingleThreadExecutor(new DefaultThreadFactory("kepler-reconnect", true));
+
+	volatile private Connect connect;
+
+	volatile private Timer timer;
 
 	@Override
-	public Host get() throws Exception {
-		ConnectHost connect = this.queue.poll(DefaultConnects.INTERVAL, TimeUnit.MILLISECONDS);
-		return connect != null ? connect.host() : null;
+	public void bind(Connect connect, Timer timer) {
+		this.connect = connect;
+		this.timer = timer;
+		// 绑定前加入的Host
+		for (Host each : this.scheduled) {
+			this.schedule(each);
+		}
+	}
+
+	/**
+	 * For Spring
+	 */
+	public void destroy() {
+		this.executor.shutdownNow();
 	}
 
 	@Override
 	public void put(Host host) {
-		this.queue.offer(new DelayConnectHost(host));
+		// 已调度则忽略, 尚未绑定则等待绑定后调度
+		if (this.scheduled.add(host) && this.timer != null) {
+			this.schedule(host);
+		}
 	}
 
-	private class DelayConnectHost implements ConnectHost {
+	private void schedule(Host host) {
+		long delay = this.delay(host);
+		try {
+			this.timer.newTimeout(new ReconnectTask(host), delay, TimeUnit.MILLISECONDS);
+			DefaultConnects.LOGGER.info("Reconnect " + host + " after " + delay + "ms ... ");
+		} catch (IllegalStateException e) {
+			// Timer已关闭
+			this.scheduled.remove(host);
+		}
+	}
 
-		/**
-		 * 当前时间 + delay时间
-		 */
-		private final long deadline = TimeUnit.MILLISECONDS.convert(DefaultConnects.DELAY, TimeUnit.MILLISECONDS) + System.currentTimeMillis();
+	@Override
+	public void reset(Host host) {
+		this.attempts.remove(host);
+	}
+
+	/**
+	 * 计算延迟并累计失败次数
+	 * 
+	 * @param host
+	 * @return
+	 */
+	private long delay(Host host) {
+		AtomicInteger attempt = this.attempts.get(host);
+		if (attempt == null) {
+			AtomicInteger exists = this.attempts.putIfAbsent(host, attempt = new AtomicInteger());
+			attempt = exists != null ? exists : attempt;
+		}
+		// 防止溢出
+		long delay = Math.min(DefaultConnects.MAX, (long) DefaultConnects.DELAY << Math.min(attempt.getAndIncrement(), 30));
+		return delay / 2 + ThreadLocalRandom.current().nextLong(Math.max(1, delay - delay / 2));
+	}
+
+	private class ReconnectTask implements TimerTask, Runnable {
 
 		private final Host host;
 
-		private DelayConnectHost(Host host) {
+		private ReconnectTask(Host host) {
 			super();
 			this.host = host;
 		}
 
-		public long getDelay(TimeUnit unit) {
-			return unit.convert(this.deadline - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
-		}
-
-		public int compareTo(Delayed o) {
-			return this.getDelay(TimeUnit.SECONDS) >= o.getDelay(TimeUnit.SECONDS) ? 1 : -1;
+		@Override
+		public void run(Timeout timeout) throws Exception {
+			try {
+				// 转交重连线程
+				DefaultConnects.this.executor.execute(this);
+			} catch (RejectedExecutionException e) {
+				// 已关闭
+				DefaultConnects.this.scheduled.remove(this.host);
+			}
 		}
 
 		@Override
-		public Host host() {
-			return this.host;
+		public void run() {
+			DefaultConnects.this.scheduled.remove(this.host);
+			try {
+				// 异步连接, 失败将由Connect再次加入
+				DefaultConnects.this.connect.connect(this.host);
+			} catch (Throwable e) {
+				DefaultConnects.LOGGER.warn(e.getMessage(), e);
+				DefaultConnects.this.put(this.host);
+			}
 		}
 	}
 }
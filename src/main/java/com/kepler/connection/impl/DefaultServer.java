@@ -1,21 +1,40 @@
 package com.kepler.connection.impl;
 
+import java.io.Closeable;
+import java.io.File;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import com.kepler.KeplerException;
+import com.kepler.KeplerOverloadException;
+import com.kepler.KeplerTimeoutException;
+import com.kepler.config.Profile;
 import com.kepler.config.PropertiesUtils;
+import com.kepler.connection.Backpressure;
+import com.kepler.connection.Bulkheads;
 import com.kepler.connection.Counter;
 import com.kepler.connection.Reject;
+import com.kepler.connection.handler.BatchHandler;
 import com.kepler.connection.handler.CodecHeader;
+import com.kepler.connection.handler.CodecCompress;
 import com.kepler.connection.handler.DecoderHandler;
+import com.kepler.connection.handler.DictionaryHandler;
 import com.kepler.connection.handler.EncoderHandler;
+import com.kepler.connection.handler.FlushHandler;
+import com.kepler.connection.handler.FragmentHandler;
+import com.kepler.connection.handler.HeartbeatHandler;
 import com.kepler.connection.handler.ResourceHandler;
+import com.kepler.connection.handler.StreamHandler;
+import com.kepler.connection.handler.StreamHandler.Credits;
 import com.kepler.header.HeadersContext;
+import com.kepler.header.impl.DeadlineContext;
 import com.kepler.host.impl.ServerHost;
 import com.kepler.promotion.Promotion;
 import com.kepler.protocol.Request;
@@ -26,12 +45,17 @@ import com.kepler.protocol.ResponseFactory;
 import com.kepler.serial.Serials;
 import com.kepler.service.ExportedContext;
 import com.kepler.service.Quiet;
+import com.kepler.stream.Chunk;
+import com.kepler.stream.StreamContext;
 import com.kepler.token.TokenContext;
 import com.kepler.trace.Trace;
 import com.kepler.traffic.Traffic;
 
+import io.netty.bootstrap.ChannelFactory;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandler.Sharable;
 import io.netty.channel.ChannelHandlerContext;
@@ -39,11 +63,9 @@ import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.ServerChannel;
-import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.unix.DomainSocketAddress;
 import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
-import io.netty.handler.codec.LengthFieldPrepender;
 import io.netty.handler.timeout.IdleStateEvent;
 import io.netty.handler.timeout.IdleStateHandler;
 
@@ -78,7 +100,7 @@ public class DefaultServer {
 	 */
 	private static final String BINDING = PropertiesUtils.get(DefaultServer.class.getName().toLowerCase() + ".binding", "0.0.0.0");
 
-	private static final DefaultChannelFactory<ServerChannel> FACTORY = new DefaultChannelFactory<ServerChannel>(NioServerSocketChannel.class);
+	private static final ChannelFactory<ServerChannel> FACTORY = Transport.ACTUAL.server();
 
 	private static final Log LOGGER = LogFactory.getLog(DefaultServer.class);
 
@@ -88,7 +110,9 @@ public class DefaultServer {
 
 	private final RequestValidation validation;
 
-	private final ThreadPoolExecutor threads;
+	private final Backpressure backpressure;
+
+	private final Bulkheads bulkheads;
 
 	private final RequestProcessor processor;
 
@@ -112,19 +136,23 @@ public class DefaultServer {
 
 	private final Reject reject;
 
+	private final Profile profiles;
+
 	private final Trace trace;
 
 	private final Quiet quiet;
 
-	public DefaultServer(Trace trace, Reject reject, Traffic traffic, Serials serials, Counter counter, ServerHost local, Promotion promotion, TokenContext token, ExportedContext exported, ResponseFactory response, HeadersContext headers, ThreadPoolExecutor threads, RequestValidation validation, RequestProcessor processor, Quiet quiet) {
+	public DefaultServer(Trace trace, Reject reject, Traffic traffic, Serials serials, Counter counter, ServerHost local, Promotion promotion, TokenContext token, ExportedContext exported, ResponseFactory response, HeadersContext headers, Backpressure backpressure, RequestValidation validation, RequestProcessor processor, Quiet quiet, Bulkheads bulkheads, Profile profiles) {
 		super();
+		this.profiles = profiles;
+		this.backpressure = backpressure;
+		this.bulkheads = bulkheads;
 		this.validation = validation;
 		this.processor = processor;
 		this.promotion = promotion;
 		this.exported = exported;
 		this.response = response;
 		this.counter = counter;
-		this.threads = threads;
 		this.headers = headers;
 		this.traffic = traffic;
 		this.serials = serials;
@@ -143,18 +171,44 @@ public class DefaultServer {
 	public void init() throws Exception {
 		// 连接控制
 		this.inits.add(new ResourceHandler());
-		// 黏包
-		this.inits.add(new LengthFieldPrepender(CodecHeader.DEFAULT));
-		// 编码/解码
+		// 编码(含黏包)/解码
 		this.inits.add(new EncoderHandler(DefaultServer.this.traffic, DefaultServer.this.serials, Response.class));
 		this.inits.add(new DecoderHandler(DefaultServer.this.traffic, DefaultServer.this.serials, Request.class));
 		// 本地服务
 		this.inits.add(new ExportedHandler());
-		// 服务配置(绑定端口,SO_REUSEADDR=true)
-		this.bootstrap.group(new NioEventLoopGroup(DefaultServer.EVENTLOOP_PARENT), new NioEventLoopGroup(DefaultServer.EVENTLOOP_CHILD)).channelFactory(DefaultServer.FACTORY).childHandler(this.inits.factory()).option(ChannelOption.SO_REUSEADDR, true).bind(DefaultServer.BINDING, this.local.port()).sync();
+		// 服务配置(SO_REUSEADDR=true)
+		Transport.ACTUAL.options4server(this.bootstrap).group(Transport.ACTUAL.eventloop(DefaultServer.EVENTLOOP_PARENT), Transport.ACTUAL.eventloop(DefaultServer.EVENTLOOP_CHILD)).channelFactory(DefaultServer.FACTORY).childHandler(this.inits.factory()).option(ChannelOption.SO_REUSEADDR, true);
+		// 绑定端口(Epoll SO_REUSEPORT时多次绑定, 每个Accept通道独占1个Parent EventLoop)
+		for (int index = 0; index < Transport.ACTUAL.acceptors(DefaultServer.EVENTLOOP_PARENT); index++) {
+			this.bootstrap.bind(DefaultServer.BINDING, this.local.port()).sync();
+		}
+		this.domain();
 		DefaultServer.LOGGER.info("Server " + this.local + " started ... ");
 	}
 
+	/**
+	 * 绑定Unix Domain Socket(同主机调用), 共享EventLoop. 绑定成功后才发布路径, 失败则仅使用TCP
+	 */
+	private void domain() {
+		String domain = this.local.domain4bind();
+		if (domain == null) {
+			return;
+		}
+		if (Transport.ACTUAL.server4domain() == null) {
+			DefaultServer.LOGGER.warn("Domain socket " + domain + " required epoll transport, ignored ... ");
+			return;
+		}
+		// 删除残留文件(端口唯一, 残留文件必然来自已退出进程)
+		new File(domain).delete();
+		ChannelFuture future = new ServerBootstrap().group(this.bootstrap.group(), this.bootstrap.childGroup()).channelFactory(Transport.ACTUAL.server4domain()).childHandler(this.inits.factory()).bind(new DomainSocketAddress(domain)).awaitUninterruptibly();
+		if (!future.isSuccess()) {
+			DefaultServer.LOGGER.warn("Domain socket " + domain + " bind failed, using tcp only ... ", future.cause());
+			return;
+		}
+		this.local.bound();
+		DefaultServer.LOGGER.info("Server " + domain + " started ... ");
+	}
+
 	/**
 	 * For Spring
 	 * 
@@ -163,6 +217,9 @@ public class DefaultServer {
 	public void destroy() throws Exception {
 		this.bootstrap.group().shutdownGracefully().sync();
 		this.bootstrap.childGroup().shutdownGracefully().sync();
+		if (this.local.domain() != null) {
+			new File(this.local.domain()).delete();
+		}
 		DefaultServer.LOGGER.warn("Server shutdown ... ");
 	}
 
@@ -174,15 +231,33 @@ public class DefaultServer {
 			this.handlers.add(handler);
 		}
 
-		public ChannelInitializer<SocketChannel> factory() {
-			return new ChannelInitializer<SocketChannel>() {
-				protected void initChannel(SocketChannel channel) throws Exception {
-					channel.config().setReceiveBufferSize(DefaultServer.BUFFER_RECV);
-					channel.config().setSendBufferSize(DefaultServer.BUFFER_SEND);
+		public ChannelInitializer<Channel> factory() {
+			return new ChannelInitializer<Channel>() {
+				protected void initChannel(Channel channel) throws Exception {
+					// TCP通道指定读写缓存(Unix Domain Socket无此选项)
+					if (channel instanceof SocketChannel) {
+						SocketChannel.class.cast(channel).config().setReceiveBufferSize(DefaultServer.BUFFER_RECV);
+						SocketChannel.class.cast(channel).config().setSendBufferSize(DefaultServer.BUFFER_SEND);
+					}
 					channel.config().setAllocator(PooledByteBufAllocator.DEFAULT);
+					Transport.watermark(channel.config());
 					// 检查死连接
 					channel.pipeline().addLast(new IdleStateHandler(DefaultServer.IDLE_READ, DefaultServer.IDLE_WRITE, DefaultServer.IDLE_ALL));
 					channel.pipeline().addLast(new LengthFieldBasedFrameDecoder(DefaultServer.FRAGEMENT, 0, CodecHeader.DEFAULT, 0, CodecHeader.DEFAULT));
+					// 合并Flush(每个通道独立)
+					if (FlushHandler.ENABLED) {
+						channel.pipeline().addLast(new FlushHandler());
+					}
+					// 响应心跳(每个通道独立)
+					channel.pipeline().addLast(new HeartbeatHandler(false));
+					// 批量拆分/发送(每个通道独立)
+					channel.pipeline().addLast(new BatchHandler(DefaultServer.this.traffic));
+					// 流式响应Credit(每个通道独立)
+					channel.pipeline().addLast(new StreamHandler());
+					// 分片参数重组(每个通道独立)
+					channel.pipeline().addLast(new FragmentHandler());
+					// 字典协商(每个通道独立)
+					channel.pipeline().addLast(new DictionaryHandler(false));
 					for (ChannelHandler each : InitializerFactory.this.handlers) {
 						channel.pipeline().addLast(each);
 					}
@@ -204,8 +279,9 @@ public class DefaultServer {
 		private String local;
 
 		public void channelActive(ChannelHandlerContext ctx) throws Exception {
-			this.local = ctx.channel().localAddress().toString();
-			this.target = ctx.channel().remoteAddress().toString();
+			// Unix Domain Socket对端地址可能为Null
+			this.local = String.valueOf(ctx.channel().localAddress());
+			this.target = String.valueOf(ctx.channel().remoteAddress());
 			DefaultServer.LOGGER.info("Connect active (" + this.local + " to " + this.target + ") ...");
 			ctx.fireChannelActive();
 		}
@@ -241,11 +317,29 @@ public class DefaultServer {
 		@Override
 		public void channelRead(ChannelHandlerContext ctx, Object message) throws Exception {
 			Reply reply = new Reply(ctx, Request.class.cast(message));
-			// 使用EventLoop线程还是使用Kepler线程
-			if (DefaultServer.this.promotion.promote(reply.request())) {
+			// 使用EventLoop线程还是使用Kepler线程(声明流式响应需等待Credit, 不可提升至EventLoop)
+			if (StreamContext.credits(reply.request()) == 0 && DefaultServer.this.promotion.promote(reply.request())) {
 				ctx.executor().execute(reply);
 			} else {
-				DefaultServer.this.threads.execute(reply);
+				this.execute(reply);
+			}
+		}
+
+		/**
+		 * 开启隔离则使用服务独立线程池, 否则使用共享线程池(背压), 已满则立即返回过载
+		 * 
+		 * @param reply
+		 */
+		private void execute(Reply reply) {
+			try {
+				ThreadPoolExecutor bulkhead = DefaultServer.this.bulkheads.get(reply.request());
+				if (bulkhead != null) {
+					bulkhead.execute(reply);
+				} else {
+					DefaultServer.this.backpressure.execute(reply.ctx.channel(), reply);
+				}
+			} catch (RejectedExecutionException e) {
+				reply.overload();
 			}
 		}
 
@@ -284,33 +378,149 @@ public class DefaultServer {
 			 * @param request
 			 * @return
 			 */
-			private Reply init(Request request) {
+			private Reply init(Request request, long deadline) {
 				// Request计数
 				DefaultServer.this.counter.incr();
 				// Reply执行时间
 				this.running = System.currentTimeMillis();
 				// 线程Copy Header, 用于嵌套服务调用时传递(In Kepler Threads)
 				DefaultServer.this.headers.set(request.headers());
+				// 线程绑定Deadline, 用于嵌套服务调用时传递剩余时间
+				DeadlineContext.set(deadline);
 				return this;
 			}
 
 			@Override
 			public void run() {
-				// Request After Process (Processor处理后的Request可能为Wrap, 不能使用this.request进行传递)
-				Request request = DefaultServer.this.processor.process(this.request);
-				// 使用处理后Request
-				Response response = this.init(request).response(request);
-				this.ctx.writeAndFlush(response).addListener(ExceptionListener.TRACE);
-				// 记录调用栈 (使用原始Request)
-				DefaultServer.this.trace.trace(this.request, response, ExportedHandler.this.local, ExportedHandler.this.target, this.running - this.created, System.currentTimeMillis() - this.running, this.created);
+				try {
+					// 排队期间已超出调用方剩余时间则不执行(调用方已放弃等待)
+					long deadline = DeadlineContext.deadline(this.request.headers(), this.created);
+					if (System.currentTimeMillis() >= deadline) {
+						this.expired();
+						return;
+					}
+					// Request After Process (Processor处理后的Request可能为Wrap, 不能使用this.request进行传递)
+					Request request = DefaultServer.this.processor.process(this.request);
+					// 初始Credit(服务执行前获取, 服务内嵌套调用共享Request Headers)
+					int credits = StreamContext.credits(this.request);
+					try {
+						// 使用处理后Request
+						Response response = this.init(request, deadline).response(request);
+						// 返回Iterator且Client声明流式响应则分片发送(遍历Iterator期间保持Header/Deadline), 否则一次发送
+						if (StreamContext.streaming(credits, response)) {
+							this.stream(request, response, credits);
+						} else {
+							this.ctx.writeAndFlush(CodecCompress.frame(response, CodecCompress.threshold(DefaultServer.this.profiles, this.request.service()))).addListener(ExceptionListener.TRACE);
+						}
+						// 记录调用栈 (使用原始Request)
+						DefaultServer.this.trace.trace(this.request, response, ExportedHandler.this.local, ExportedHandler.this.target, this.running - this.created, System.currentTimeMillis() - this.running, this.created);
+					} finally {
+						this.release();
+					}
+				} finally {
+					// 尝试恢复已暂停通道
+					DefaultServer.this.backpressure.release();
+				}
+			}
+
+			/**
+			 * 释放Request(响应已发送或流式响应结束)
+			 */
+			private void release() {
+				// 删除Header避免同线程的其他业务复用
+				DefaultServer.this.headers.release();
+				DeadlineContext.release();
+				// Request执行完毕
+				DefaultServer.this.counter.decr();
 			}
 
 			public Request request() {
 				return this.request;
 			}
 
+			/**
+			 * 流式响应, 每个分片消耗1个Credit(占用当前线程直至结束)
+			 * 
+			 * @param request
+			 * @param response
+			 * @param initial 初始Credit
+			 */
+			private void stream(Request request, Response response, int initial) {
+				StreamHandler handler = this.ctx.pipeline().get(StreamHandler.class);
+				Credits credits = handler.register(request.ack(), initial);
+				Iterator<?> iterator = Iterator.class.cast(response.response());
+				int threshold = CodecCompress.threshold(DefaultServer.this.profiles, request.service());
+				int chunk = StreamContext.chunk(DefaultServer.this.profiles, request.service());
+				try {
+					boolean end = false;
+					while (!end) {
+						// 获取Credit后再遍历分片元素(Kepler线程, 流式响应不提升至EventLoop)
+						if (!credits.acquire(StreamContext.IDLE)) {
+							throw new KeplerTimeoutException("Stream for " + request.service() + " (" + request.method() + ") waiting credit over " + StreamContext.IDLE + "ms ... ");
+						}
+						// Client已Close则终止
+						if (credits.cancelled() && this.ctx.channel().isActive()) {
+							DefaultServer.LOGGER.debug("Stream for " + request.service() + " (" + request.method() + ") cancelled ... ");
+							return;
+						}
+						// 通道已关闭则终止
+						if (!this.ctx.channel().isActive()) {
+							DefaultServer.LOGGER.warn("Stream for " + request.service() + " (" + request.method() + ") terminated, channel closed ... ");
+							return;
+						}
+						List<Object> elements = new ArrayList<Object>();
+						while (elements.size() < chunk && iterator.hasNext()) {
+							elements.add(iterator.next());
+						}
+						end = !iterator.hasNext();
+						this.ctx.writeAndFlush(CodecCompress.frame(DefaultServer.this.response.response(request.ack(), new Chunk(elements.toArray(), end), request.serial()), threshold)).addListener(ExceptionListener.TRACE);
+					}
+				} catch (Throwable e) {
+					DefaultServer.LOGGER.error("[trace=" + request.get(Trace.TRACE) + "][message=" + e.getMessage() + "]", e);
+					this.ctx.writeAndFlush(DefaultServer.this.response.throwable(request.ack(), e, request.serial())).addListener(ExceptionListener.TRACE);
+				} finally {
+					handler.unregister(request.ack());
+					this.close(iterator);
+				}
+			}
+
+			/**
+			 * 释放Iterator持有资源(如游标)
+			 * 
+			 * @param iterator
+			 */
+			private void close(Iterator<?> iterator) {
+				if (iterator instanceof Closeable) {
+					try {
+						Closeable.class.cast(iterator).close();
+					} catch (Throwable e) {
+						DefaultServer.LOGGER.warn(e.getMessage(), e);
+					}
+				}
+			}
+
+			/**
+			 * 已超时, 不执行直接返回
+			 */
+			private void expired() {
+				this.ctx.pipeline().get(FragmentHandler.class).discard(this.request);
+				DefaultServer.LOGGER.warn("Expired for " + this.request.service() + " (" + this.request.method() + ") from " + ExportedHandler.this.target + " after waiting " + (System.currentTimeMillis() - this.created) + "ms ... ");
+				this.ctx.writeAndFlush(DefaultServer.this.response.throwable(this.request.ack(), new KeplerTimeoutException("Service " + this.request.service() + " (" + this.request.method() + ") expired before execution ... "), this.request.serial())).addListener(ExceptionListener.TRACE);
+			}
+
+			/**
+			 * 过载, 不执行直接返回(EventLoop线程)
+			 */
+			public void overload() {
+				this.ctx.pipeline().get(FragmentHandler.class).discard(this.request);
+				DefaultServer.LOGGER.warn("Overload for " + this.request.service() + " (" + this.request.method() + ") from " + ExportedHandler.this.target + " ... ");
+				this.ctx.writeAndFlush(DefaultServer.this.response.throwable(this.request.ack(), new KeplerOverloadException("Service " + this.request.service() + " (" + this.request.method() + ") overloaded ... "), this.request.serial())).addListener(ExceptionListener.TRACE);
+			}
+
 			private Response response(Request request) {
 				try {
+					// 重组分片参数
+					request = this.ctx.pipeline().get(FragmentHandler.class).assemble(request);
 					// 校验是否Reject(TODO: 是否提升至IO线程进行判断)
 					request = DefaultServer.this.reject.reject(request, this.ctx.channel().remoteAddress());
 					// 校验请求合法性
@@ -331,11 +541,6 @@ public class DefaultServer {
 						DefaultServer.LOGGER.warn(message, e);
 					}
 					return DefaultServer.this.response.throwable(request.ack(), e, request.serial());
-				} finally {
-					// 删除Header避免同线程的其他业务复用
-					DefaultServer.this.headers.release();
-					// Request执行完毕
-					DefaultServer.this.counter.decr();
 				}
 			}
 		}
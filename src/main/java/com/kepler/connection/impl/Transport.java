@@ -0,0 +1,235 @@
+package com.kepler.connection.impl;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ChannelFactory;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelConfig;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollDomainSocketChannel;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollMode;
+import io.netty.channel.epoll.EpollServerDomainSocketChannel;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.kepler.config.PropertiesUtils;
+
+/**
+ * 传输模式(NIO/Epoll), 由DefaultConnect和DefaultServer共享
+ * 
+ * @author kim
+ * 
+ * 2016年4月8日
+ */
+enum Transport {
+
+	NIO {
+
+		private final ChannelFactory<SocketChannel> client = new DefaultChannelFactory<SocketChannel>(NioSocketChannel.class);
+
+		private final ChannelFactory<ServerChannel> server = new DefaultChannelFactory<ServerChannel>(NioServerSocketChannel.class);
+
+		public EventLoopGroup eventloop(int threads) {
+			return new NioEventLoopGroup(threads);
+		}
+
+		public ChannelFactory<SocketChannel> client() {
+			return this.client;
+		}
+
+		public ChannelFactory<ServerChannel> server() {
+			return this.server;
+		}
+
+		public Bootstrap options4client(Bootstrap bootstrap) {
+			return bootstrap;
+		}
+
+		public ServerBootstrap options4server(ServerBootstrap bootstrap) {
+			return bootstrap;
+		}
+
+		public ChannelFactory<Channel> client4domain() {
+			return null;
+		}
+
+		public ChannelFactory<ServerChannel> server4domain() {
+			return null;
+		}
+
+		public int acceptors(int threads) {
+			return 1;
+		}
+	},
+
+	EPOLL {
+
+		private final ChannelFactory<SocketChannel> client = new DefaultChannelFactory<SocketChannel>(EpollSocketChannel.class);
+
+		private final ChannelFactory<ServerChannel> server = new DefaultChannelFactory<ServerChannel>(EpollServerSocketChannel.class);
+
+		private final ChannelFactory<Channel> client4domain = new DefaultChannelFactory<Channel>(EpollDomainSocketChannel.class);
+
+		private final ChannelFactory<ServerChannel> server4domain = new DefaultChannelFactory<ServerChannel>(EpollServerDomainSocketChannel.class);
+
+		public EventLoopGroup eventloop(int threads) {
+			return new EpollEventLoopGroup(threads);
+		}
+
+		public ChannelFactory<Channel> client4domain() {
+			return this.client4domain;
+		}
+
+		public ChannelFactory<ServerChannel> server4domain() {
+			return this.server4domain;
+		}
+
+		public ChannelFactory<SocketChannel> client() {
+			return this.client;
+		}
+
+		public ChannelFactory<ServerChannel> server() {
+			return this.server;
+		}
+
+		public Bootstrap options4client(Bootstrap bootstrap) {
+			return bootstrap.option(EpollChannelOption.EPOLL_MODE, Transport.MODE).option(EpollChannelOption.TCP_QUICKACK, Transport.QUICKACK);
+		}
+
+		public ServerBootstrap options4server(ServerBootstrap bootstrap) {
+			// Accept通道(SO_REUSEPORT), 数据通道(TCP_QUICKACK)
+			return bootstrap.option(EpollChannelOption.EPOLL_MODE, Transport.MODE).option(EpollChannelOption.SO_REUSEPORT, Transport.REUSEPORT).childOption(EpollChannelOption.EPOLL_MODE, Transport.MODE).childOption(EpollChannelOption.TCP_QUICKACK, Transport.QUICKACK);
+		}
+
+		public int acceptors(int threads) {
+			// SO_REUSEPORT时每个Parent EventLoop绑定1个Accept通道
+			return Transport.REUSEPORT ? threads : 1;
+		}
+	};
+
+	private static final Log LOGGER = LogFactory.getLog(Transport.class);
+
+	/**
+	 * 传输模式, 默认NIO
+	 */
+	private static final String TRANSPORT = PropertiesUtils.get(Transport.class.getName().toLowerCase() + ".mode", Transport.NIO.toString());
+
+	/**
+	 * Epoll是否使用边缘触发(否则为水平触发)
+	 */
+	private static final EpollMode MODE = PropertiesUtils.get(Transport.class.getName().toLowerCase() + ".edge_triggered", true) ? EpollMode.EDGE_TRIGGERED : EpollMode.LEVEL_TRIGGERED;
+
+	/**
+	 * Epoll TCP_QUICKACK
+	 */
+	private static final boolean QUICKACK = PropertiesUtils.get(Transport.class.getName().toLowerCase() + ".quickack", false);
+
+	/**
+	 * Epoll SO_REUSEPORT(Server)
+	 */
+	private static final boolean REUSEPORT = PropertiesUtils.get(Transport.class.getName().toLowerCase() + ".reuseport", false);
+
+	/**
+	 * 写缓冲高/低水位(字节), 超过高水位通道不可写直至低于低水位
+	 */
+	private static final int WATERMARK_HIGH = PropertiesUtils.get(Transport.class.getName().toLowerCase() + ".watermark_high", 0x10000);
+
+	private static final int WATERMARK_LOW = Math.min(Transport.WATERMARK_HIGH, PropertiesUtils.get(Transport.class.getName().toLowerCase() + ".watermark_low", 0x8000));
+
+	/**
+	 * 实际使用的传输模式
+	 */
+	public static final Transport ACTUAL = Transport.actual();
+
+	/**
+	 * 如果指定Epoll但Native库不可用(或传输模式无法识别)则降级为NIO
+	 * 
+	 * @return
+	 */
+	private static Transport actual() {
+		Transport transport;
+		try {
+			transport = Transport.valueOf(Transport.TRANSPORT.toUpperCase());
+		} catch (IllegalArgumentException e) {
+			Transport.LOGGER.warn("Unknown transport " + Transport.TRANSPORT + ", using nio transport ... ");
+			return Transport.NIO;
+		}
+		if (Transport.EPOLL.equals(transport) && !Epoll.isAvailable()) {
+			Transport.LOGGER.warn("Epoll unavailable, using nio transport ... (" + Epoll.unavailabilityCause() + ")");
+			return Transport.NIO;
+		}
+		Transport.LOGGER.info("Using " + transport + " transport ... ");
+		return transport;
+	}
+
+	/**
+	 * 指定写缓冲水位(Client/Server)
+	 * 
+	 * @param config
+	 */
+	public static void watermark(ChannelConfig config) {
+		// 高水位不得低于当前低水位, 按顺序赋值
+		if (Transport.WATERMARK_HIGH < config.getWriteBufferLowWaterMark()) {
+			config.setWriteBufferLowWaterMark(Transport.WATERMARK_LOW);
+			config.setWriteBufferHighWaterMark(Transport.WATERMARK_HIGH);
+		} else {
+			config.setWriteBufferHighWaterMark(Transport.WATERMARK_HIGH);
+			config.setWriteBufferLowWaterMark(Transport.WATERMARK_LOW);
+		}
+	}
+
+	abstract public EventLoopGroup eventloop(int threads);
+
+	abstract public ChannelFactory<SocketChannel> client();
+
+	abstract public ChannelFactory<ServerChannel> server();
+
+	/**
+	 * Unix Domain Socket(Client)
+	 * 
+	 * @return 不支持则返回Null
+	 */
+	abstract public ChannelFactory<Channel> client4domain();
+
+	/**
+	 * Unix Domain Socket(Server)
+	 * 
+	 * @return 不支持则返回Null
+	 */
+	abstract public ChannelFactory<ServerChannel> server4domain();
+
+	/**
+	 * 客户端通道选项
+	 * 
+	 * @param bootstrap
+	 * @return
+	 */
+	abstract public Bootstrap options4client(Bootstrap bootstrap);
+
+	/**
+	 * 服务端Accept/数据通道选项
+	 * 
+	 * @param bootstrap
+	 * @return
+	 */
+	abstract public ServerBootstrap options4server(ServerBootstrap bootstrap);
+
+	/**
+	 * 需要绑定的Accept通道数量
+	 * 
+	 * @param threads Parent EventLoop线程数量
+	 * @return
+	 */
+	abstract public int acceptors(int threads);
+}
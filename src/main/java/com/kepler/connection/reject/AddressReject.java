@@ -7,6 +7,7 @@ import com.kepler.KeplerValidateException;
 import com.kepler.config.Profile;
 import com.kepler.config.PropertiesUtils;
 import com.kepler.connection.Reject;
+import com.kepler.host.Host;
 import com.kepler.protocol.Request;
 
 /**
@@ -35,7 +36,8 @@ public class AddressReject implements Reject {
 	public Request reject(Request request, SocketAddress address) throws KeplerValidateException {
 		String rejects = PropertiesUtils.profile(this.profile.profile(request.service()), AddressReject.ADDRESS_KEY, AddressReject.ADDRESS_VAL);
 		// 如果指定服务开启拒绝请求则抛出异常
-		if (rejects.matches(".*\\[" + InetSocketAddress.class.cast(address).getHostName() + "\\].*")) {
+		// 非TCP(Unix Domain Socket)视为本地回路
+		if (rejects.matches(".*\\[" + (address instanceof InetSocketAddress ? InetSocketAddress.class.cast(address).getHostName() : Host.LOOP) + "\\].*")) {
 			throw new KeplerValidateException("Reject: " + request.service() + " from " + address + " ... ");
 		}
 		return request;
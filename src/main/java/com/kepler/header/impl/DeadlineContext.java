@@ -0,0 +1,98 @@
+package com.kepler.header.impl;
+
+import com.kepler.header.Headers;
+
+/**
+ * Deadline上下文
+ * 
+ * 1, Header中传递剩余时间(毫秒)而非绝对时间, 避免主机间时钟偏差
+ * 2, 服务端按接收时间换算为本地绝对时间并绑定至执行线程, 嵌套调用时使用剩余时间
+ * 
+ * @author kim
+ * 
+ * 2016年4月16日
+ */
+public class DeadlineContext {
+
+	/**
+	 * Header Key, 剩余时间(毫秒)
+	 */
+	public static final String DEADLINE = "deadline";
+
+	/**
+	 * 未指定Deadline
+	 */
+	public static final long UNLIMITED = Long.MAX_VALUE;
+
+	/**
+	 * 当前线程绝对Deadline(本地时间)
+	 */
+	private static final ThreadLocal<Long> DEADLINES = new ThreadLocal<Long>();
+
+	/**
+	 * Header中剩余时间, 未指定或非法则返回UNLIMITED
+	 * 
+	 * @param headers
+	 * @return
+	 */
+	public static long remain(Headers headers) {
+		String remain = headers != null ? headers.get(DeadlineContext.DEADLINE) : null;
+		if (remain == null) {
+			return DeadlineContext.UNLIMITED;
+		}
+		try {
+			return Math.max(0, Long.parseLong(remain));
+		} catch (NumberFormatException e) {
+			return DeadlineContext.UNLIMITED;
+		}
+	}
+
+	/**
+	 * 换算为本地绝对Deadline
+	 * 
+	 * @param headers
+	 * @param received 接收时间
+	 * @return
+	 */
+	public static long deadline(Headers headers, long received) {
+		long remain = DeadlineContext.remain(headers);
+		return remain == DeadlineContext.UNLIMITED ? DeadlineContext.UNLIMITED : received + remain;
+	}
+
+	/**
+	 * 当前线程剩余时间, 未绑定则返回UNLIMITED
+	 * 
+	 * @return
+	 */
+	public static long remain() {
+		Long deadline = DeadlineContext.DEADLINES.get();
+		return deadline == null ? DeadlineContext.UNLIMITED : Math.max(0, deadline - System.currentTimeMillis());
+	}
+
+	/**
+	 * 当前线程绝对Deadline, 未绑定则返回UNLIMITED
+	 * 
+	 * @return
+	 */
+	public static long get() {
+		Long deadline = DeadlineContext.DEADLINES.get();
+		return deadline == null ? DeadlineContext.UNLIMITED : deadline;
+	}
+
+	/**
+	 * 绑定当前线程Deadline, UNLIMITED则解除绑定
+	 * 
+	 * @param deadline
+	 */
+	public static void set(long deadline) {
+		if (deadline != DeadlineContext.UNLIMITED) {
+			DeadlineContext.DEADLINES.set(deadline);
+		} else {
+			DeadlineContext.DEADLINES.remove();
+		}
+	}
+
+	public static void release() {
+		DeadlineContext.DEADLINES.remove();
+	}
+}
@@ -0,0 +1,47 @@
+package com.kepler.header.impl;
+
+import com.kepler.ack.impl.AckFuture;
+import com.kepler.config.Profile;
+import com.kepler.config.PropertiesUtils;
+import com.kepler.header.Headers;
+import com.kepler.header.HeadersProcessor;
+import com.kepler.service.Service;
+
+/**
+ * 在Header中保存剩余时间(Timeout或嵌套调用时上游剩余时间, 取较小值)
+ * 
+ * @author kim
+ * 
+ * 2016年4月16日
+ */
+public class DeadlineProcessor implements HeadersProcessor {
+
+	/**
+	 * 是否传递Deadline
+	 */
+	private static final boolean ENABLED = PropertiesUtils.get(DeadlineProcessor.class.getName().toLowerCase() + ".enabled", true);
+
+	private static final int SORT = PropertiesUtils.get(DeadlineProcessor.class.getName().toLowerCase() + ".sort", Integer.MAX_VALUE);
+
+	private final Profile profile;
+
+	public DeadlineProcessor(Profile profile) {
+		super();
+		this.profile = profile;
+	}
+
+	@Override
+	public Headers process(Service service, Headers headers) {
+		if (DeadlineProcessor.ENABLED && headers != null) {
+			long timeout = PropertiesUtils.profile(this.profile.profile(service), AckFuture.TIMEOUT_KEY, AckFuture.TIMEOUT_DEF);
+			// 服务端线程内嵌套调用则使用上游剩余时间
+			headers.put(DeadlineContext.DEADLINE, String.valueOf(Math.min(timeout, DeadlineContext.remain())));
+		}
+		return headers;
+	}
+
+	@Override
+	public int sort() {
+		return DeadlineProcessor.SORT;
+	}
+}
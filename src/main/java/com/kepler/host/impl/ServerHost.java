@@ -1,5 +1,8 @@
 package com.kepler.host.impl;
 
+import io.netty.channel.epoll.Epoll;
+
+import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
 import java.net.Inet4Address;
@@ -66,18 +69,51 @@ public class ServerHost implements Serializable, Host {
 	 */
 	private static final String SID = PropertiesUtils.get(ServerHost.class.getName().toLowerCase() + ".sid", UUID.randomUUID().toString());
 
+	/**
+	 * 是否发布Unix Domain Socket(同主机调用, 依赖Epoll)
+	 */
+	private static final boolean DOMAIN = PropertiesUtils.get(ServerHost.class.getName().toLowerCase() + ".domain", true);
+
+	/**
+	 * Unix Domain Socket目录
+	 */
+	private static final String DOMAIN_DIR = PropertiesUtils.get(ServerHost.class.getName().toLowerCase() + ".domain_dir", System.getProperty("java.io.tmpdir"));
+
 	private final String sid;
 
 	private final Host local;
 
-	private ServerHost(Host host, String sid) {
+	/**
+	 * 待绑定Unix Domain Socket路径(本地), 不支持则为Null
+	 */
+	private final String domain4bind;
+
+	/**
+	 * 已发布Unix Domain Socket路径, 未绑定则为Null
+	 */
+	volatile private String domain;
+
+	private ServerHost(Host host, String sid, String domain) {
 		this.local = host;
 		this.sid = sid;
+		this.domain = domain;
+		this.domain4bind = null;
 	}
 
 	public ServerHost(Pid pid) throws Exception {
 		this.local = new DefaultHost(Host.GROUP_VAL, Host.TOKEN_VAL, Host.NAME, Host.TAG_VAL, pid.pid(), this.ip(), ServerHost.STABLE ? ServerHost.PORT : this.available(), Host.PRIORITY_DEF);
 		this.sid = ServerHost.SID;
+		this.domain4bind = this.domain(this.local.port());
+	}
+
+	/**
+	 * 端口唯一, 因此以端口命名
+	 * 
+	 * @param port
+	 * @return
+	 */
+	private String domain(int port) {
+		return ServerHost.DOMAIN && Epoll.isAvailable() ? new File(ServerHost.DOMAIN_DIR, "kepler_" + port + ".sock").getAbsolutePath() : null;
 	}
 
 	private String ip() throws Exception {
@@ -125,6 +161,35 @@ public class ServerHost implements Serializable, Host {
 		return this.sid;
 	}
 
+	/**
+	 * Unix Domain Socket路径(仅发布已绑定路径)
+	 * 
+	 * @return 不支持或未绑定则返回Null
+	 */
+	public String domain() {
+		return this.domain;
+	}
+
+	/**
+	 * 待绑定Unix Domain Socket路径
+	 * 
+	 * @return 不支持则返回Null
+	 */
+	public String domain4bind() {
+		return this.domain4bind;
+	}
+
+	/**
+	 * Unix Domain Socket已绑定, 发布路径
+	 * 
+	 * @return
+	 */
+	public ServerHost bound() {
+		this.domain = this.domain4bind;
+		ServerHost.LOGGER.info("ServerHost using domain socket: " + this.domain);
+		return this;
+	}
+
 	@Override
 	public int port() {
 		return this.local.port();
@@ -235,12 +300,14 @@ public class ServerHost implements Serializable, Host {
 
 		private String group;
 
+		private String domain;
+
 		private int port;
 
 		private int priority;
 
 		public Builder(ServerHost that) {
-			this.setGroup(that.group()).setToken(that.token()).setName(that.name()).setHost(that.host()).setPid(that.pid()).setPort(that.port()).setPriority(that.priority()).setSid(that.sid()).setTag(that.tag());
+			this.setGroup(that.group()).setToken(that.token()).setName(that.name()).setHost(that.host()).setPid(that.pid()).setPort(that.port()).setPriority(that.priority()).setSid(that.sid()).setTag(that.tag()).setDomain(that.domain());
 		}
 
 		public Builder setPriority(int priority) {
@@ -283,13 +350,18 @@ public class ServerHost implements Serializable, Host {
 			return this;
 		}
 
+		public Builder setDomain(String domain) {
+			this.domain = domain;
+			return this;
+		}
+
 		public Builder setPort(int port) {
 			this.port = port;
 			return this;
 		}
 
 		public ServerHost toServerHost() {
-			return new ServerHost(new DefaultHost(this.group, this.token, this.name, this.tag, this.pid, this.host, this.port, this.priority), this.sid);
+			return new ServerHost(new DefaultHost(this.group, this.token, this.name, this.tag, this.pid, this.host, this.port, this.priority), this.sid, this.domain);
 		}
 	}
 }
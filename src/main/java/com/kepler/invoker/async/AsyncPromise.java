@@ -1,17 +1,54 @@
 package com.kepler.invoker.async;
 
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
 import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.kepler.config.PropertiesUtils;
+import com.kepler.thread.FutureListener;
+import com.kepler.thread.ListenableFuture;
 
 /**
+ * Future均支持回调(ListenableFuture)时不占用线程等待, 全部完成后由Executor回调, 否则降级为线程等待
+ * 
  * @author kim
- *
+ * 
  * 2016年2月16日
  */
 public class AsyncPromise {
 
+	/**
+	 * 超时时间轮精度(毫秒)
+	 */
+	private static final int TIMER_TICK = PropertiesUtils.get(AsyncPromise.class.getName().toLowerCase() + ".timer_tick", 100);
+
+	/**
+	 * 超时(所有Promise共享)
+	 */
+	private static final Timer TIMER = new HashedWheelTimer(new DefaultThreadFactory("kepler-promise-timer", true), AsyncPromise.TIMER_TICK, TimeUnit.MILLISECONDS);
+
+	/**
+	 * 回调线程池饱和(CallerRunsPolicy/拒绝)时的备用线程数
+	 */
+	private static final int CALLBACK_THREAD = Math.max(1, PropertiesUtils.get(AsyncPromise.class.getName().toLowerCase() + ".callback_thread", 2));
+
+	/**
+	 * 备用回调线程池, 避免用户回调在EventLoop/时间轮线程执行(队列不限, 回调不可丢弃)
+	 */
+	private static final ThreadPoolExecutor CALLBACK = new ThreadPoolExecutor(AsyncPromise.CALLBACK_THREAD, AsyncPromise.CALLBACK_THREAD, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(), new DefaultThreadFactory("kepler-promise-callback", true));
+
 	private final ThreadPoolExecutor threads;
 
 	public AsyncPromise(ThreadPoolExecutor threads) {
@@ -21,28 +58,180 @@ public class AsyncPromise {
 
 	@SafeVarargs
 	final public void promise(AsyncCallback callback, Future<Object>... futures) {
-		this.threads.execute(new FutureLaunch(callback, futures));
+		AsyncPromise.promise(Integer.MAX_VALUE, callback, this.threads, futures);
 	}
 
 	@SafeVarargs
 	final public void promise(int timeout, AsyncCallback callback, Future<Object>... futures) {
-		this.threads.execute(new FutureLaunch(timeout, callback, futures));
+		AsyncPromise.promise(timeout, callback, this.threads, futures);
 	}
 
 	@SafeVarargs
 	final public static void promise(AsyncCallback callback, Executor executor, Future<Object>... futures) {
-		executor.execute(new FutureLaunch(callback, futures));
+		AsyncPromise.promise(Integer.MAX_VALUE, callback, executor, futures);
 	}
 
+	/**
+	 * Futures仅读取(Future<?>[]), 不写入数组
+	 */
 	@SafeVarargs
+	@SuppressWarnings("varargs")
 	final public static void promise(int timeout, AsyncCallback callback, Executor executor, Future<Object>... futures) {
-		executor.execute(new FutureLaunch(timeout, callback, futures));
+		if (AsyncPromise.listenable(futures)) {
+			new FuturePromise(timeout, callback, executor, futures).listen();
+		} else {
+			executor.execute(new FutureLaunch(timeout, callback, futures));
+		}
+	}
+
+	/**
+	 * 提交回调, 禁止在提交线程(EventLoop/时间轮)中执行
+	 * 
+	 * @param executor
+	 * @param task
+	 */
+	private static void execute(Executor executor, Runnable task) {
+		try {
+			executor.execute(new CallerGuard(task));
+		} catch (RejectedExecutionException e) {
+			AsyncPromise.CALLBACK.execute(task);
+		}
+	}
+
+	/**
+	 * 是否均支持回调
+	 * 
+	 * @param futures
+	 * @return
+	 */
+	private static boolean listenable(Future<?>[] futures) {
+		for (Future<?> each : futures) {
+			if (!(each instanceof ListenableFuture)) {
+				return false;
+			}
+		}
+		return true;
 	}
 
 	/**
+	 * 尝试取消剩余任务
+	 * 
+	 * @param futures
+	 */
+	private static void release(Future<?>[] futures) {
+		for (Future<?> each : futures) {
+			each.cancel(true);
+		}
+	}
+
+	/**
+	 * 基于回调, 等待期间不占用线程
 	 * 
 	 * @author kim
-	 *
+	 * 
+	 * 2016年4月14日
+	 */
+	private static class FuturePromise implements FutureListener, TimerTask, Runnable {
+
+		/**
+		 * 是否已提交回调(完成或超时, 仅一次)
+		 */
+		private final AtomicBoolean launched = new AtomicBoolean();
+
+		/**
+		 * 尚未完成Future数量
+		 */
+		private final AtomicInteger remain;
+
+		/**
+		 * 待处理Future
+		 */
+		private final Future<?>[] futures;
+
+		private final AsyncCallback callback;
+
+		private final Executor executor;
+
+		private final int timeout;
+
+		volatile private Timeout expiration;
+
+		volatile private boolean expired;
+
+		private FuturePromise(int timeout, AsyncCallback callback, Executor executor, Future<?>[] futures) {
+			this.remain = new AtomicInteger(futures.length);
+			this.executor = executor;
+			this.callback = callback;
+			this.timeout = timeout;
+			this.futures = futures;
+		}
+
+		public void listen() {
+			if (this.timeout != Integer.MAX_VALUE) {
+				this.expiration = AsyncPromise.TIMER.newTimeout(this, this.timeout, TimeUnit.MILLISECONDS);
+			}
+			if (this.futures.length == 0) {
+				this.launch();
+				return;
+			}
+			for (Future<?> each : this.futures) {
+				ListenableFuture.class.cast(each).listener(this);
+			}
+		}
+
+		@Override
+		public void complete(Future<?> future) {
+			// 全部完成
+			if (this.remain.decrementAndGet() == 0) {
+				this.launch();
+			}
+		}
+
+		@Override
+		public void run(Timeout timeout) throws Exception {
+			if (this.launched.compareAndSet(false, true)) {
+				this.expired = true;
+				AsyncPromise.execute(this.executor, this);
+			}
+		}
+
+		private void launch() {
+			if (this.launched.compareAndSet(false, true)) {
+				AsyncPromise.execute(this.executor, this);
+			}
+		}
+
+		public void run() {
+			try {
+				if (this.expiration != null) {
+					this.expiration.cancel();
+				}
+				// 准备数据(均已完成, 不会堵塞), 回调
+				this.callback.callback(this.get4args(new Object[this.futures.length]));
+			} catch (Throwable throwable) {
+				// 异常处理
+				this.callback.throwable(throwable);
+			} finally {
+				AsyncPromise.release(this.futures);
+			}
+		}
+
+		private Object[] get4args(Object[] args) throws Throwable {
+			if (this.expired) {
+				throw new TimeoutException("Promise timeout after " + this.timeout + "ms ... ");
+			}
+			for (int index = 0; index < args.length; index++) {
+				args[index] = this.futures[index].get();
+			}
+			return args;
+		}
+	}
+
+	/**
+	 * 线程等待(存在不支持回调的Future时使用)
+	 * 
+	 * @author kim
+	 * 
 	 * 2016年2月16日
 	 */
 	private static class FutureLaunch implements Runnable {
@@ -50,7 +239,7 @@ public class AsyncPromise {
 		/**
 		 * 待处理Future
 		 */
-		private final Future<Object>[] futures;
+		private final Future<?>[] futures;
 
 		private final AsyncCallback callback;
 
@@ -61,13 +250,7 @@ public class AsyncPromise {
 
 		private final int timeout;
 
-		@SafeVarargs
-		private FutureLaunch(AsyncCallback callback, Future<Object>... futures) {
-			this(Integer.MAX_VALUE, callback, futures);
-		}
-
-		@SafeVarargs
-		private FutureLaunch(int timeout, AsyncCallback callback, Future<Object>... futures) {
+		private FutureLaunch(int timeout, AsyncCallback callback, Future<?>[] futures) {
 			this.args = new Object[futures.length];
 			this.callback = callback;
 			this.timeout = timeout;
@@ -82,14 +265,7 @@ public class AsyncPromise {
 				// 异常处理
 				this.callback.throwable(throwable);
 			} finally {
-				this.release();
-			}
-		}
-
-		private void release() {
-			// 尝试取消剩余任务
-			for (Future<Object> each : this.futures) {
-				each.cancel(true);
+				AsyncPromise.release(this.futures);
 			}
 		}
 
@@ -101,4 +277,34 @@ public class AsyncPromise {
 			return args;
 		}
 	}
+
+	/**
+	 * 线程池饱和时CallerRunsPolicy将在提交线程中执行, 此时转交备用线程池
+	 * 
+	 * @author kim
+	 * 
+	 * 2016年4月18日
+	 */
+	private static class CallerGuard implements Runnable {
+
+		/**
+		 * 提交线程
+		 */
+		private final Thread caller = Thread.currentThread();
+
+		private final Runnable task;
+
+		private CallerGuard(Runnable task) {
+			super();
+			this.task = task;
+		}
+
+		public void run() {
+			if (Thread.currentThread() == this.caller) {
+				AsyncPromise.CALLBACK.execute(this.task);
+			} else {
+				this.task.run();
+			}
+		}
+	}
 }
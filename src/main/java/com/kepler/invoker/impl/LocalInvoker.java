@@ -0,0 +1,175 @@
+package com.kepler.invoker.impl;
+
+import com.kepler.ack.Ack;
+import com.kepler.ack.Status;
+import com.kepler.admin.transfer.Collector;
+import com.kepler.config.Profile;
+import com.kepler.config.PropertiesUtils;
+import com.kepler.header.Headers;
+import com.kepler.header.HeadersContext;
+import com.kepler.header.impl.DeadlineContext;
+import com.kepler.header.impl.LazyHeaders;
+import com.kepler.host.Host;
+import com.kepler.invoker.Invoker;
+import com.kepler.protocol.Request;
+import com.kepler.protocol.Response;
+import com.kepler.protocol.ResponseFactory;
+import com.kepler.serial.SerialID;
+import com.kepler.serial.Serials;
+import com.kepler.service.ExportedContext;
+import com.kepler.service.Quiet;
+import com.kepler.trace.Trace;
+
+/**
+ * 本地已发布服务直接调用(不经过序列化及网络)
+ * 
+ * 1, 与远程调用相同, 服务端线程Headers为Request Headers副本, 调用完毕后恢复
+ * 2, 开启Copy则Request/Response经序列化复制(参数/返回值隔离)
+ * 3, Trace与Collector记录方式与远程调用相同
+ * 
+ * @author kim
+ * 
+ * 2016年4月18日
+ */
+public class LocalInvoker implements Invoker {
+
+	private static final boolean ACTIVED = PropertiesUtils.get(LocalInvoker.class.getName().toLowerCase() + ".actived", true);
+
+	/**
+	 * 是否本地调用
+	 */
+	private static final String ENABLED_KEY = LocalInvoker.class.getName().toLowerCase() + ".enabled";
+
+	private static final boolean ENABLED_DEF = PropertiesUtils.get(LocalInvoker.ENABLED_KEY, true);
+
+	/**
+	 * 是否复制Request/Response
+	 */
+	private static final String COPY_KEY = LocalInvoker.class.getName().toLowerCase() + ".copy";
+
+	private static final boolean COPY_DEF = PropertiesUtils.get(LocalInvoker.COPY_KEY, false);
+
+	private final ResponseFactory response;
+
+	private final ExportedContext exported;
+
+	private final HeadersContext headers;
+
+	private final Collector collector;
+
+	private final Serials serials;
+
+	private final Profile profile;
+
+	private final Quiet quiet;
+
+	private final Trace trace;
+
+	private final Host local;
+
+	public LocalInvoker(Host local, Quiet quiet, Trace trace, Serials serials, Profile profile, Collector collector, HeadersContext headers, ExportedContext exported, ResponseFactory response) {
+		super();
+		this.local = local;
+		this.quiet = quiet;
+		this.trace = trace;
+		this.serials = serials;
+		this.profile = profile;
+		this.headers = headers;
+		this.response = response;
+		this.exported = exported;
+		this.collector = collector;
+	}
+
+	@Override
+	public boolean actived() {
+		return LocalInvoker.ACTIVED;
+	}
+
+	@Override
+	public Object invoke(Request request) throws Throwable {
+		// Future(async)仍使用远程调用
+		Invoker invoker = request.async() ? null : this.exported.get(request.service());
+		return invoker != null && PropertiesUtils.profile(this.profile.profile(request.service()), LocalInvoker.ENABLED_KEY, LocalInvoker.ENABLED_DEF) ? this.invoke(invoker, request) : Invoker.EMPTY;
+	}
+
+	private Object invoke(Invoker invoker, Request request) throws Throwable {
+		boolean copy = PropertiesUtils.profile(this.profile.profile(request.service()), LocalInvoker.COPY_KEY, LocalInvoker.COPY_DEF);
+		long created = System.currentTimeMillis();
+		Response response = this.response(invoker, copy ? this.copy(request, Request.class) : request, created);
+		// 记录调用栈, 收集
+		this.trace.trace(request, response, this.local.address(), this.local.address(), 0, System.currentTimeMillis() - created, created);
+		this.collector.collect(new LocalAck(request, response, created));
+		response = copy ? this.copy(response, Response.class) : response;
+		if (!response.valid()) {
+			throw response.throwable();
+		}
+		return response.response();
+	}
+
+	private Response response(Invoker invoker, Request request, long created) {
+		// 保存调用方上下文
+		Headers headers = this.headers.get();
+		long deadline = DeadlineContext.get();
+		try {
+			// 副本, 服务端修改不影响调用方
+			this.headers.set(request.headers() != null ? new LazyHeaders(request.headers()) : null);
+			DeadlineContext.set(DeadlineContext.deadline(request.headers(), created));
+			return this.response.response(request.ack(), invoker.invoke(request), request.serial());
+		} catch (Throwable e) {
+			return this.response.throwable(request.ack(), e, request.serial());
+		} finally {
+			// 恢复调用方上下文
+			this.headers.set(headers);
+			DeadlineContext.set(deadline);
+		}
+	}
+
+	/**
+	 * 经序列化复制
+	 * 
+	 * @param data
+	 * @param clazz
+	 * @return
+	 * @throws Exception
+	 */
+	private <T extends SerialID> T copy(T data, Class<T> clazz) throws Exception {
+		return this.serials.input(data.serial()).input(this.serials.output(data.serial()).output(data, clazz), clazz);
+	}
+
+	private class LocalAck implements Ack {
+
+		private final Request request;
+
+		private final Status status;
+
+		private final long elapse;
+
+		private LocalAck(Request request, Response response, long created) {
+			super();
+			this.request = request;
+			this.elapse = System.currentTimeMillis() - created;
+			// 与AckFuture相同, 静默异常视为完成
+			this.status = response.valid() || LocalInvoker.this.quiet.quiet(request, response.throwable().getClass()) ? Status.DONE : Status.EXCEPTION;
+		}
+
+		public Host local() {
+			return LocalInvoker.this.local;
+		}
+
+		public Host target() {
+			return LocalInvoker.this.local;
+		}
+
+		public long elapse() {
+			return this.elapse;
+		}
+
+		public Status status() {
+			return this.status;
+		}
+
+		public Request request() {
+			return this.request;
+		}
+	}
+}
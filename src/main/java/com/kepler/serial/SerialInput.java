@@ -1,5 +1,7 @@
 package com.kepler.serial;
 
+import io.netty.buffer.ByteBuf;
+
 import java.io.InputStream;
 
 /**
@@ -17,4 +19,14 @@ public interface SerialInput extends SerialID, SerialName {
 	 * @throws Exception
 	 */
 	public <T> T input(InputStream input, int buffer, Class<T> clazz) throws Exception;
+
+	/**
+	 * 直接从ByteBuf(Direct/Pooled)解码, 不引入中间缓冲
+	 * 
+	 * @param buffer 当前可读部分即为完整数据, 解码后ReaderIndex不保证位置
+	 * @param clazz
+	 * @return
+	 * @throws Exception
+	 */
+	public <T> T input(ByteBuf buffer, Class<T> clazz) throws Exception;
 }
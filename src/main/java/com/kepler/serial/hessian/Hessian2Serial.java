@@ -0,0 +1,48 @@
+package com.kepler.serial.hessian;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import com.kepler.com.caucho.hessian.io.AbstractHessianInput;
+import com.kepler.com.caucho.hessian.io.AbstractHessianOutput;
+import com.kepler.com.caucho.hessian.io.Hessian2Input;
+import com.kepler.com.caucho.hessian.io.Hessian2Output;
+import com.kepler.protocol.RequestFactory;
+import com.kepler.protocol.ResponseFactory;
+
+/**
+ * Hessian 2编码, Request/Response结构与HessianSerial一致
+ * 
+ * 1, Int/Long/String紧凑编码
+ * 2, 同一消息内类定义及对象引用不重复写入
+ * 
+ * @author kim
+ * 
+ * 2016年4月18日
+ */
+public class Hessian2Serial extends HessianSerial {
+
+	private static final String NAME = "hessian2";
+
+	private static final byte SERIAL = 2;
+
+	public Hessian2Serial(ResponseFactory response, RequestFactory request) {
+		super(response, request);
+	}
+
+	public byte serial() {
+		return Hessian2Serial.SERIAL;
+	}
+
+	public String name() {
+		return Hessian2Serial.NAME;
+	}
+
+	protected AbstractHessianInput hessian4input(InputStream stream) {
+		return new Hessian2Input(stream);
+	}
+
+	protected AbstractHessianOutput hessian4output(OutputStream stream) {
+		return new Hessian2Output(stream);
+	}
+}
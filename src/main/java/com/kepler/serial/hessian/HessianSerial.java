@@ -1,17 +1,20 @@
 package com.kepler.serial.hessian;
 
+import io.netty.buffer.ByteBuf;
+
 import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import com.kepler.KeplerSerialException;
+import com.kepler.com.caucho.hessian.io.AbstractHessianInput;
+import com.kepler.com.caucho.hessian.io.AbstractHessianOutput;
 import com.kepler.com.caucho.hessian.io.HessianInput;
 import com.kepler.com.caucho.hessian.io.HessianOutput;
 import com.kepler.com.caucho.hessian.io.SerializerFactory;
@@ -26,6 +29,11 @@ import com.kepler.protocol.ResponseFactory;
 import com.kepler.serial.SerialID;
 import com.kepler.serial.SerialInput;
 import com.kepler.serial.SerialOutput;
+import com.kepler.serial.impl.ArraysInputStream;
+import com.kepler.serial.impl.ArraysOutputStream;
+import com.kepler.serial.impl.BufferInputStream;
+import com.kepler.serial.impl.Dictionary;
+import com.kepler.serial.impl.DictionaryContext;
 import com.kepler.service.Service;
 
 /**
@@ -83,6 +91,20 @@ public class HessianSerial implements SerialOutput, SerialInput {
 		return SerialID.SERIAL_DEF;
 	}
 
+	/**
+	 * Hessian 1编码, 子类可替换(如Hessian 2)
+	 * 
+	 * @param stream
+	 * @return
+	 */
+	protected AbstractHessianInput hessian4input(InputStream stream) {
+		return new HessianInput(stream);
+	}
+
+	protected AbstractHessianOutput hessian4output(OutputStream stream) {
+		return new HessianOutput(stream);
+	}
+
 	public byte[] output(Object data, Class<?> clazz) throws Exception {
 		try (SegmentOutput output = this.output.get().reset(clazz)) {
 			return output.writeObject(data).arrays();
@@ -108,30 +130,79 @@ public class HessianSerial implements SerialOutput, SerialInput {
 		}
 	}
 
+	public <T> T input(ByteBuf buffer, Class<T> clazz) throws Exception {
+		try (SegmentInput input = this.input.get().reset(buffer, clazz)) {
+			return this.adapter.adpater(clazz, input.readObject());
+		}
+	}
+
+	/**
+	 * 线程内复用Hessian Input及底层Stream, 每次读取前重新Init
+	 * 
+	 * @author kim
+	 * 
+	 * 2016年4月18日
+	 */
 	private class SegmentInput implements Closeable {
 
-		private HessianInput input;
+		private final AbstractHessianInput input = HessianSerial.this.hessian4input(null);
+
+		private final ArraysInputStream arrays = new ArraysInputStream();
+
+		private final BufferInputStream buffer = new BufferInputStream();
 
 		private Class<?> clazz;
 
-		public SegmentInput reset(byte[] arrays, Class<?> clazz) {
-			this.input = new HessianInput(new BufferedInputStream(new ByteArrayInputStream(arrays), HessianSerial.BUFFER));
+		private SegmentInput() {
 			this.input.setSerializerFactory(HessianSerial.this.hessian2factory);
+		}
+
+		public SegmentInput reset(byte[] arrays, Class<?> clazz) {
+			this.input.init(this.arrays.reset(arrays, 0, arrays.length));
 			this.clazz = clazz;
 			return this;
 		}
 
+		/**
+		 * 外部Stream(非ByteBuf), 仍使用BufferedInputStream
+		 * 
+		 * @param stream
+		 * @param buffer
+		 * @param clazz
+		 * @return
+		 */
 		public SegmentInput reset(InputStream stream, int buffer, Class<?> clazz) {
-			this.input = new HessianInput(new BufferedInputStream(stream, buffer));
-			this.input.setSerializerFactory(HessianSerial.this.hessian2factory);
+			this.input.init(new BufferedInputStream(stream, buffer));
+			this.clazz = clazz;
+			return this;
+		}
+
+		/**
+		 * 直接读取ByteBuf, 无需BufferedInputStream. Heap ByteBuf直接读取底层数组
+		 * 
+		 * @param buffer
+		 * @param clazz
+		 * @return
+		 */
+		public SegmentInput reset(ByteBuf buffer, Class<?> clazz) {
+			if (buffer.hasArray()) {
+				int readable = buffer.readableBytes();
+				this.input.init(this.arrays.reset(buffer.array(), buffer.arrayOffset() + buffer.readerIndex(), readable));
+				// ByteBuf由调用方在读取完毕后释放, 底层数组读取期间有效
+				buffer.skipBytes(readable);
+			} else {
+				this.input.init(this.buffer.reset(buffer));
+			}
 			this.clazz = clazz;
 			return this;
 		}
 
 		@Override
 		public void close() throws IOException {
-			// Hessian级联关闭
+			// Hessian不会级联关闭, 释放对数组/ByteBuf的引用
 			this.input.close();
+			this.arrays.close();
+			this.buffer.close();
 		}
 
 		public Object readObject() throws Exception {
@@ -140,29 +211,48 @@ public class HessianSerial implements SerialOutput, SerialInput {
 		}
 	}
 
+	/**
+	 * 线程内复用Hessian Output及字节数组, 每次写入前重新Init
+	 * 
+	 * @author kim
+	 * 
+	 * 2016年4月18日
+	 */
 	private class SegmentOutput implements Closeable {
 
+		private final AbstractHessianOutput output = HessianSerial.this.hessian4output(null);
+
+		private final ArraysOutputStream arrays = new ArraysOutputStream(HessianSerial.BUFFER);
+
 		private Class<?> clazz;
 
+		/**
+		 * 外部Stream, 为Null则写入字节数组
+		 */
 		private OutputStream stream;
 
-		private HessianOutput output;
-
-		private ByteArrayOutputStream arrays;
+		private SegmentOutput() {
+			this.output.setSerializerFactory(HessianSerial.this.hessian2factory);
+		}
 
 		public SegmentOutput reset(Class<?> clazz) {
-			this.output = new HessianOutput(new BufferedOutputStream(this.arrays = new ByteArrayOutputStream(HessianSerial.BUFFER), HessianSerial.BUFFER));
-			this.output.setSerializerFactory(HessianSerial.this.hessian2factory);
+			this.output.init(this.arrays);
 			this.clazz = clazz;
 			this.stream = null;
 			return this;
 		}
 
+		/**
+		 * 直接写入外部Stream(如ByteBuf), 无需BufferedOutputStream
+		 * 
+		 * @param clazz
+		 * @param stream
+		 * @param buffer
+		 * @return
+		 */
 		public SegmentOutput reset(Class<?> clazz, OutputStream stream, int buffer) {
-			this.output = new HessianOutput(new BufferedOutputStream(this.stream = stream, buffer));
-			this.output.setSerializerFactory(HessianSerial.this.hessian2factory);
+			this.output.init(this.stream = stream);
 			this.clazz = clazz;
-			this.arrays = null;
 			return this;
 		}
 
@@ -172,15 +262,16 @@ public class HessianSerial implements SerialOutput, SerialInput {
 		 * @return
 		 */
 		public byte[] arrays() {
-			return this.arrays != null ? this.arrays.toByteArray() : HessianSerial.EMPTY;
+			return this.stream == null ? this.arrays.toByteArray() : HessianSerial.EMPTY;
 		}
 
 		@Override
 		public void close() throws IOException {
 			// Output不会级联关闭
 			this.output.close();
-			IOUtils.closeQuietly(this.arrays);
+			this.arrays.reuse();
 			IOUtils.closeQuietly(this.stream);
+			this.stream = null;
 		}
 
 		public SegmentOutput writeObject(Object ob) throws Exception {
@@ -365,9 +456,9 @@ public class HessianSerial implements SerialOutput, SerialInput {
 
 	private interface Serializer {
 
-		public void write(HessianOutput output, Object ob) throws Exception;
+		public void write(AbstractHessianOutput output, Object ob) throws Exception;
 
-		public <T> T read(HessianInput input, Class<T> clazz) throws Exception;
+		public <T> T read(AbstractHessianInput input, Class<T> clazz) throws Exception;
 	}
 
 	/**
@@ -378,12 +469,12 @@ public class HessianSerial implements SerialOutput, SerialInput {
 	private class ObjectSerializer implements Serializer {
 
 		@Override
-		public void write(HessianOutput output, Object ob) throws Exception {
+		public void write(AbstractHessianOutput output, Object ob) throws Exception {
 			output.writeObject(ob);
 		}
 
 		@Override
-		public <T> T read(HessianInput input, Class<T> clazz) throws Exception {
+		public <T> T read(AbstractHessianInput input, Class<T> clazz) throws Exception {
 			return clazz.cast(input.readObject());
 		}
 	}
@@ -395,6 +486,21 @@ public class HessianSerial implements SerialOutput, SerialInput {
 	 */
 	private class RequestSerializer implements Serializer {
 
+		/**
+		 * 字典格式标记(长度字段)
+		 */
+		private static final int DICTIONARY = 0x40000000;
+
+		/**
+		 * 符号: 定义并写入完整字符串
+		 */
+		private static final int DEFINE = -1;
+
+		/**
+		 * 符号: 仅写入完整字符串
+		 */
+		private static final int LITERAL = -2;
+
 		private final Map<String, Class<?>> primitives = new HashMap<String, Class<?>>();
 
 		/**
@@ -418,7 +524,7 @@ public class HessianSerial implements SerialOutput, SerialInput {
 			return byte.class.equals(clazz) || short.class.equals(clazz) || float.class.equals(clazz) || Byte.class.equals(clazz) || Short.class.equals(clazz) || Float.class.equals(clazz);
 		}
 
-		public void write(HessianOutput output, Object object) throws Exception {
+		public void write(AbstractHessianOutput output, Object object) throws Exception {
 			this.write4request(output, Request.class.cast(object));
 		}
 
@@ -429,11 +535,88 @@ public class HessianSerial implements SerialOutput, SerialInput {
 		 * @param request
 		 * @throws Exception
 		 */
-		private void write4request(HessianOutput output, Request request) throws Exception {
+		private void write4request(AbstractHessianOutput output, Request request) throws Exception {
+			// 通道已协商字典则使用字典格式
+			Dictionary dictionary = DictionaryContext.get();
+			if (dictionary != null) {
+				this.write4dictionary(output, request, dictionary);
+				return;
+			}
 			// 原数据最后写提供预留空间
 			this.write4length(output, request).write4header(output, request).write4args(output, request).write4metadata(output, request);
 		}
 
+		/**
+		 * [DICTIONARY|Header|Args长度][符号][Header Value][Args][ACK]
+		 * 
+		 * 符号(Header Key, 非精确参数类型, 元数据)集中写入, 读取方在解析参数前完成定义, 参数解析失败不影响字典一致
+		 * 
+		 * @param output
+		 * @param request
+		 * @param dictionary
+		 * @throws Exception
+		 */
+		private void write4dictionary(AbstractHessianOutput output, Request request, Dictionary dictionary) throws Exception {
+			int headers = request.headers() != null ? request.headers().length() : 0;
+			output.writeInt(RequestSerializer.DICTIONARY | headers << 0x4 | request.args().length);
+			List<String> symbols = this.symbols(request);
+			output.writeInt(symbols.size());
+			for (String each : symbols) {
+				this.write4symbol(output, dictionary, each);
+			}
+			if (request.headers() != null) {
+				for (String key : request.headers().keys()) {
+					output.writeString(request.get(key));
+				}
+			}
+			for (int index = 0; index < request.types().length; index++) {
+				output.writeBoolean(this.exact(request.types()[index], request.args()[index]));
+				output.writeObject(request.args()[index]);
+			}
+			output.writeBytes(request.ack());
+		}
+
+		/**
+		 * Header Key + 非精确参数类型 + Service/Version/Catalog/Method
+		 * 
+		 * @param request
+		 * @return
+		 */
+		private List<String> symbols(Request request) {
+			List<String> symbols = new ArrayList<String>();
+			if (request.headers() != null) {
+				symbols.addAll(request.headers().keys());
+			}
+			for (int index = 0; index < request.types().length; index++) {
+				if (!this.exact(request.types()[index], request.args()[index])) {
+					symbols.add(request.types()[index].getName());
+				}
+			}
+			symbols.add(request.service().service());
+			symbols.add(request.service().version());
+			symbols.add(request.service().catalog());
+			symbols.add(request.method());
+			return symbols;
+		}
+
+		/**
+		 * 已定义写入ID, 否则定义并写入完整字符串(字典已满或Null则仅写入完整字符串)
+		 * 
+		 * @param output
+		 * @param dictionary
+		 * @param symbol
+		 * @throws Exception
+		 */
+		private void write4symbol(AbstractHessianOutput output, Dictionary dictionary, String symbol) throws Exception {
+			int id = symbol != null ? dictionary.id(symbol) : Dictionary.UNDEFINED;
+			if (id != Dictionary.UNDEFINED) {
+				output.writeInt(id);
+				return;
+			}
+			output.writeInt(symbol != null && dictionary.define(symbol) != Dictionary.UNDEFINED ? RequestSerializer.DEFINE : RequestSerializer.LITERAL);
+			output.writeString(symbol);
+		}
+
 		/**
 		 * 高4位为Headers长度,低4位为Args长度
 		 * 
@@ -442,13 +625,13 @@ public class HessianSerial implements SerialOutput, SerialInput {
 		 * @return
 		 * @throws Exception
 		 */
-		private RequestSerializer write4length(HessianOutput output, Request request) throws Exception {
+		private RequestSerializer write4length(AbstractHessianOutput output, Request request) throws Exception {
 			int headers = request.headers() != null ? request.headers().length() : 0;
 			output.writeInt(0 | headers << 0x4 | request.args().length);
 			return this;
 		}
 
-		private RequestSerializer write4args(HessianOutput output, Request request) throws Exception {
+		private RequestSerializer write4args(AbstractHessianOutput output, Request request) throws Exception {
 			for (int index = 0; index < request.types().length; index++) {
 				// Type + Object(Hessian.writeObject)
 				this.write4type(output, request, request.types()[index], request.args()[index]).writeObject(request.args()[index]);
@@ -456,11 +639,22 @@ public class HessianSerial implements SerialOutput, SerialInput {
 			return this;
 		}
 
-		private HessianOutput write4type(HessianOutput output, Request request, Class<?> clazz, Object arg) throws Exception {
+		/**
+		 * 是否无需写入Type
+		 * 
+		 * @param clazz
+		 * @param arg
+		 * @return
+		 */
+		private boolean exact(Class<?> clazz, Object arg) {
+			return !this.force(clazz) && (clazz.isPrimitive() || (arg != null && arg.getClass().equals(clazz)));
+		}
+
+		private AbstractHessianOutput write4type(AbstractHessianOutput output, Request request, Class<?> clazz, Object arg) throws Exception {
 			// this.force(clazz) 强制需要写入Type的类型
 			// clazz.isPrimitive() 原生类型
 			// arg !=null && arg.getClass().equals(clazz), 传递参数与声明类型完全一致
-			if (!this.force(clazz) && (clazz.isPrimitive() || (arg != null && arg.getClass().equals(clazz)))) {
+			if (this.exact(clazz, arg)) {
 				output.writeBoolean(true);
 			} else {
 				output.writeBoolean(false);
@@ -469,7 +663,7 @@ public class HessianSerial implements SerialOutput, SerialInput {
 			return output;
 		}
 
-		private RequestSerializer write4header(HessianOutput output, Request request) throws Exception {
+		private RequestSerializer write4header(AbstractHessianOutput output, Request request) throws Exception {
 			if (request.headers() != null) {
 				for (String key : request.headers().keys()) {
 					// String -> String
@@ -480,7 +674,7 @@ public class HessianSerial implements SerialOutput, SerialInput {
 			return this;
 		}
 
-		private RequestSerializer write4metadata(HessianOutput output, Request request) throws Exception {
+		private RequestSerializer write4metadata(AbstractHessianOutput output, Request request) throws Exception {
 			output.writeString(request.service().service());
 			output.writeString(request.service().version());
 			output.writeString(request.service().catalog());
@@ -489,18 +683,21 @@ public class HessianSerial implements SerialOutput, SerialInput {
 			return this;
 		}
 
-		public <T> T read(HessianInput input, Class<T> clazz) throws Exception {
+		public <T> T read(AbstractHessianInput input, Class<T> clazz) throws Exception {
 			return clazz.cast(this.read4request(input));
 		}
 
-		private Request read4request(HessianInput input) throws Exception {
+		private Request read4request(AbstractHessianInput input) throws Exception {
 			// 计算长度
 			Integer len = input.readInt();
+			if ((len & RequestSerializer.DICTIONARY) != 0) {
+				return this.read4dictionary(input, len);
+			}
 			Integer len4args = len & 0xf;
 			Integer len4headers = len >> 0x4;
 			// 初始化Header/Args
 			Headers headers = this.read4header(input, len4headers);
-			Class<?>[] types = new Class[len4args];
+			Class<?>[] types = new Class<?>[len4args];
 			Object[] args = new Object[len4args];
 			this.read4args(input, types, args, len4args);
 			// 元数据
@@ -509,24 +706,84 @@ public class HessianSerial implements SerialOutput, SerialInput {
 			// ACK
 			byte[] ack = input.readBytes();
 			// 当前序列化策略即为Request实际序列化策略
-			return HessianSerial.this.request.request(headers, service, method, false, args, types, ack, HessianSerial.SERIAL);
+			return HessianSerial.this.request.request(headers, service, method, false, args, types, ack, HessianSerial.this.serial());
+		}
+
+		private Request read4dictionary(AbstractHessianInput input, int len) throws Exception {
+			Dictionary dictionary = DictionaryContext.get();
+			if (dictionary == null) {
+				throw new KeplerSerialException("Dictionary required but not negotiated ... ");
+			}
+			int len4args = len & 0xf;
+			int len4headers = (len & ~RequestSerializer.DICTIONARY) >> 0x4;
+			// 首先完成全部符号定义
+			String[] symbols = new String[input.readInt()];
+			for (int index = 0; index < symbols.length; index++) {
+				symbols[index] = this.read4symbol(input, dictionary);
+			}
+			int cursor = 0;
+			Headers headers = null;
+			if (len4headers != 0) {
+				headers = new LazyHeaders();
+				for (int index = 0; index < len4headers; index++) {
+					headers.put(symbols[cursor++], input.readString());
+				}
+			}
+			Class<?>[] types = new Class<?>[len4args];
+			Object[] args = new Object[len4args];
+			for (int index = 0; index < len4args; index++) {
+				if (input.readBoolean()) {
+					types[index] = (args[index] = input.readObject()).getClass();
+				} else {
+					types[index] = this.type(symbols[cursor++]);
+					args[index] = input.readObject();
+				}
+			}
+			Service service = new Service(symbols[cursor++], symbols[cursor++], symbols[cursor++]);
+			String method = symbols[cursor++];
+			byte[] ack = input.readBytes();
+			return HessianSerial.this.request.request(headers, service, method, false, args, types, ack, HessianSerial.this.serial());
+		}
+
+		private String read4symbol(AbstractHessianInput input, Dictionary dictionary) throws Exception {
+			int id = input.readInt();
+			switch (id) {
+			case RequestSerializer.DEFINE:
+				String symbol = input.readString();
+				dictionary.add(symbol);
+				return symbol;
+			case RequestSerializer.LITERAL:
+				return input.readString();
+			default:
+				return dictionary.get(id);
+			}
+		}
+
+		/**
+		 * 首先查找基础类型
+		 * 
+		 * @param clazz
+		 * @return
+		 * @throws Exception
+		 */
+		private Class<?> type(String clazz) throws Exception {
+			return this.primitives.containsKey(clazz) ? this.primitives.get(clazz) : Class.forName(clazz);
 		}
 
-		private void read4args(HessianInput input, Class<?>[] types, Object[] args, int length) throws Exception {
+		private void read4args(AbstractHessianInput input, Class<?>[] types, Object[] args, int length) throws Exception {
 			for (int index = 0; index < length; index++) {
 				// 是否Class/Object类型精确一致
 				if (input.readBoolean()) {
 					types[index] = (args[index] = input.readObject()).getClass();
 				} else {
 					// 首先查找基础类型
-					String clazz = input.readString();
-					types[index] = this.primitives.containsKey(clazz) ? this.primitives.get(clazz) : Class.forName(clazz);
+					types[index] = this.type(input.readString());
 					args[index] = input.readObject();
 				}
 			}
 		}
 
-		private Headers read4header(HessianInput input, int length) throws Exception {
+		private Headers read4header(AbstractHessianInput input, int length) throws Exception {
 			Headers headers = null;
 			if (length != 0) {
 				headers = new LazyHeaders();
@@ -545,15 +802,15 @@ public class HessianSerial implements SerialOutput, SerialInput {
 	 */
 	private class ResponseSerializer implements Serializer {
 
-		public void write(HessianOutput output, Object object) throws Exception {
+		public void write(AbstractHessianOutput output, Object object) throws Exception {
 			this.write4response(output, Response.class.cast(object));
 		}
 
-		public <T> T read(HessianInput input, Class<T> clazz) throws Exception {
+		public <T> T read(AbstractHessianInput input, Class<T> clazz) throws Exception {
 			return clazz.cast(this.read4response(input));
 		}
 
-		private void write4response(HessianOutput output, Response response) throws Exception {
+		private void write4response(AbstractHessianOutput output, Response response) throws Exception {
 			output.writeBytes(response.ack());
 			output.writeBoolean(response.valid());
 			if (response.valid()) {
@@ -563,18 +820,18 @@ public class HessianSerial implements SerialOutput, SerialInput {
 			}
 		}
 
-		private Response read4response(HessianInput input) throws Exception {
+		private Response read4response(AbstractHessianInput input) throws Exception {
 			// 读取ACK
 			byte[] ack = input.readBytes();
 			if (input.readBoolean()) {
 				// 正常返回
-				return HessianSerial.this.response.response(ack, input.readObject(), HessianSerial.SERIAL);
+				return HessianSerial.this.response.response(ack, input.readObject(), HessianSerial.this.serial());
 			} else {
 				// 读取异常
 				Object throwable = input.readObject();
 				// 尝试解析异常, 如果为Throwable类型则直接抛出, 包装为类型错误
 				Throwable actual = Throwable.class.isAssignableFrom(throwable.getClass()) ? Throwable.class.cast(throwable) : new ClassNotFoundException("Class not found when service throw exception, " + throwable.toString());
-				return HessianSerial.this.response.throwable(ack, actual, HessianSerial.SERIAL);
+				return HessianSerial.this.response.throwable(ack, actual, HessianSerial.this.serial());
 			}
 		}
 	}
@@ -0,0 +1,42 @@
+package com.kepler.serial.impl;
+
+import java.io.ByteArrayInputStream;
+
+/**
+ * 可重用ByteArrayInputStream(线程内复用), 指向外部数组不复制
+ * 
+ * @author kim
+ * 
+ * 2016年4月18日
+ */
+public class ArraysInputStream extends ByteArrayInputStream {
+
+	private static final byte[] EMPTY = new byte[] {};
+
+	public ArraysInputStream() {
+		super(ArraysInputStream.EMPTY);
+	}
+
+	/**
+	 * 指向新数组
+	 * 
+	 * @param buf
+	 * @param offset
+	 * @param length
+	 * @return
+	 */
+	public ArraysInputStream reset(byte[] buf, int offset, int length) {
+		this.buf = buf;
+		this.pos = offset;
+		this.mark = offset;
+		this.count = Math.min(offset + length, buf.length);
+		return this;
+	}
+
+	/**
+	 * 释放外部数组引用
+	 */
+	public void close() {
+		this.reset(ArraysInputStream.EMPTY, 0, 0);
+	}
+}
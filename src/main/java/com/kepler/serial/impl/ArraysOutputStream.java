@@ -0,0 +1,40 @@
+package com.kepler.serial.impl;
+
+import java.io.ByteArrayOutputStream;
+
+import com.kepler.config.PropertiesUtils;
+
+/**
+ * 可重用ByteArrayOutputStream(线程内复用), 保留已扩容数组
+ * 
+ * @author kim
+ * 
+ * 2016年4月18日
+ */
+public class ArraysOutputStream extends ByteArrayOutputStream {
+
+	/**
+	 * 允许保留的最大数组(字节), 超过则重用前释放(避免偶发大对象长期占用)
+	 */
+	private static final int RETAIN = PropertiesUtils.get(ArraysOutputStream.class.getName().toLowerCase() + ".retain", 0x10000);
+
+	private final int size;
+
+	public ArraysOutputStream(int size) {
+		super(size);
+		this.size = size;
+	}
+
+	/**
+	 * 重置已写入数据
+	 * 
+	 * @return
+	 */
+	public ArraysOutputStream reuse() {
+		if (this.buf.length > ArraysOutputStream.RETAIN) {
+			this.buf = new byte[this.size];
+		}
+		this.reset();
+		return this;
+	}
+}
@@ -0,0 +1,56 @@
+package com.kepler.serial.impl;
+
+import io.netty.buffer.ByteBuf;
+
+import java.io.InputStream;
+
+/**
+ * 可重用ByteBuf InputStream(线程内复用), 替代每次创建ByteBufInputStream
+ * 
+ * @author kim
+ * 
+ * 2016年4月18日
+ */
+public class BufferInputStream extends InputStream {
+
+	private ByteBuf buffer;
+
+	public BufferInputStream reset(ByteBuf buffer) {
+		this.buffer = buffer;
+		return this;
+	}
+
+	@Override
+	public int read() {
+		return this.buffer.isReadable() ? this.buffer.readByte() & 0xFF : -1;
+	}
+
+	public int read(byte[] dest, int offset, int length) {
+		if (length == 0) {
+			return 0;
+		}
+		int readable = Math.min(this.buffer.readableBytes(), length);
+		if (readable == 0) {
+			return -1;
+		}
+		this.buffer.readBytes(dest, offset, readable);
+		return readable;
+	}
+
+	public long skip(long length) {
+		int skip = (int) Math.min(this.buffer.readableBytes(), Math.max(0, length));
+		this.buffer.skipBytes(skip);
+		return skip;
+	}
+
+	public int available() {
+		return this.buffer.readableBytes();
+	}
+
+	/**
+	 * 释放ByteBuf引用(不释放ByteBuf, 由调用方负责)
+	 */
+	public void close() {
+		this.buffer = null;
+	}
+}
@@ -0,0 +1,115 @@
+package com.kepler.serial.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.kepler.KeplerSerialException;
+import com.kepler.config.PropertiesUtils;
+
+/**
+ * 连接级字符串字典(Request元数据), 每个通道独立且仅由通道所属EventLoop访问
+ * 
+ * 1, 写入方: 首次使用时定义(ID为定义顺序), 成帧后提交, 失败则回滚(对端未接收该定义)
+ * 2, 读取方: 按接收顺序记录定义
+ * 
+ * @author kim
+ * 
+ * 2016年4月18日
+ */
+public class Dictionary {
+
+	/**
+	 * 未定义(或字典已满)
+	 */
+	public static final int UNDEFINED = -1;
+
+	/**
+	 * 字典最大容量
+	 */
+	private static final int MAX = PropertiesUtils.get(Dictionary.class.getName().toLowerCase() + ".max", 0x1000);
+
+	/**
+	 * 已提交定义(写入方)
+	 */
+	private final Map<String, Integer> ids = new HashMap<String, Integer>();
+
+	/**
+	 * 当前消息新增定义(写入方)
+	 */
+	private final Map<String, Integer> staged = new HashMap<String, Integer>();
+
+	/**
+	 * 已接收定义(读取方)
+	 */
+	private final List<String> strings = new ArrayList<String>();
+
+	/**
+	 * 获取ID
+	 * 
+	 * @param value
+	 * @return 未定义则返回UNDEFINED
+	 */
+	public int id(String value) {
+		Integer id = this.ids.get(value);
+		if (id == null) {
+			id = this.staged.get(value);
+		}
+		return id != null ? id : Dictionary.UNDEFINED;
+	}
+
+	/**
+	 * 定义(当前消息编码成功后提交)
+	 * 
+	 * @param value
+	 * @return 字典已满则返回UNDEFINED
+	 */
+	public int define(String value) {
+		int id = this.ids.size() + this.staged.size();
+		if (id >= Dictionary.MAX) {
+			return Dictionary.UNDEFINED;
+		}
+		this.staged.put(value, id);
+		return id;
+	}
+
+	/**
+	 * 当前消息是否存在新增定义
+	 * 
+	 * @return
+	 */
+	public boolean defining() {
+		return !this.staged.isEmpty();
+	}
+
+	public void commit() {
+		if (!this.staged.isEmpty()) {
+			this.ids.putAll(this.staged);
+			this.staged.clear();
+		}
+	}
+
+	public void rollback() {
+		this.staged.clear();
+	}
+
+	/**
+	 * 记录对端定义
+	 * 
+	 * @param value
+	 */
+	public void add(String value) {
+		if (this.strings.size() >= Dictionary.MAX) {
+			throw new KeplerSerialException("Dictionary exceed " + Dictionary.MAX + " ... ");
+		}
+		this.strings.add(value);
+	}
+
+	public String get(int id) {
+		if (id < 0 || id >= this.strings.size()) {
+			throw new KeplerSerialException("Dictionary id " + id + " undefined ... ");
+		}
+		return this.strings.get(id);
+	}
+}
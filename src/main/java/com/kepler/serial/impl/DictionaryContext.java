@@ -0,0 +1,34 @@
+package com.kepler.serial.impl;
+
+/**
+ * 当前线程编码/解码所属通道字典(EventLoop线程, 由Encoder/Decoder绑定)
+ * 
+ * @author kim
+ * 
+ * 2016年4月18日
+ */
+public class DictionaryContext {
+
+	private static final ThreadLocal<Dictionary> DICTIONARIES = new ThreadLocal<Dictionary>();
+
+	/**
+	 * 当前线程字典, 未绑定(非通道编解码或未协商)则返回Null
+	 * 
+	 * @return
+	 */
+	public static Dictionary get() {
+		return DictionaryContext.DICTIONARIES.get();
+	}
+
+	public static void set(Dictionary dictionary) {
+		if (dictionary != null) {
+			DictionaryContext.DICTIONARIES.set(dictionary);
+		} else {
+			DictionaryContext.DICTIONARIES.remove();
+		}
+	}
+
+	public static void release() {
+		DictionaryContext.DICTIONARIES.remove();
+	}
+}
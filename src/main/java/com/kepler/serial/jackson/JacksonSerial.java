@@ -1,9 +1,7 @@
 package com.kepler.serial.jackson;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import io.netty.buffer.ByteBuf;
+
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
@@ -21,6 +19,8 @@ import com.kepler.protocol.Request;
 import com.kepler.protocol.Response;
 import com.kepler.serial.SerialInput;
 import com.kepler.serial.SerialOutput;
+import com.kepler.serial.impl.ArraysOutputStream;
+import com.kepler.serial.impl.BufferInputStream;
 
 /**
  * 更快压缩速度
@@ -97,9 +97,8 @@ public class JacksonSerial implements SerialInput, SerialOutput {
 
 	@Override
 	public <T> T input(byte[] data, Class<T> clazz) throws Exception {
-		try (AutoCloseInput input = this.input.get().reset(data, clazz)) {
-			return clazz.cast(input.readObject());
-		}
+		// 直接读取数组(Jackson内部缓冲可回收)
+		return clazz.cast(this.serializers.get(clazz).read(data, 0, data.length, clazz));
 	}
 
 	@Override
@@ -109,20 +108,52 @@ public class JacksonSerial implements SerialInput, SerialOutput {
 		}
 	}
 
+	@Override
+	public <T> T input(ByteBuf buffer, Class<T> clazz) throws Exception {
+		// Heap Buffer直接读取底层数组
+		if (buffer.hasArray()) {
+			int readable = buffer.readableBytes();
+			T data = clazz.cast(this.serializers.get(clazz).read(buffer.array(), buffer.arrayOffset() + buffer.readerIndex(), readable, clazz));
+			buffer.skipBytes(readable);
+			return data;
+		}
+		// Direct Buffer由Jackson内部(可回收)缓冲批量读取
+		try (AutoCloseInput input = this.input.get().reset(buffer, clazz)) {
+			return clazz.cast(input.readObject());
+		}
+	}
+
+	/**
+	 * 线程内复用Stream
+	 * 
+	 * @author kim
+	 * 
+	 * 2016年4月18日
+	 */
 	private class AutoCloseInput implements Closeable {
 
+		private final BufferInputStream buffer = new BufferInputStream();
+
 		private InputStream stream;
 
 		private Class<?> clazz;
 
-		public AutoCloseInput reset(byte[] arrays, Class<?> clazz) {
-			this.stream = new BufferedInputStream(new ByteArrayInputStream(arrays), JacksonSerial.BUFFER);
+		/**
+		 * 外部Stream, Jackson内部已缓冲(无需BufferedInputStream)
+		 * 
+		 * @param stream
+		 * @param buffer
+		 * @param clazz
+		 * @return
+		 */
+		public AutoCloseInput reset(InputStream stream, int buffer, Class<?> clazz) {
+			this.stream = stream;
 			this.clazz = clazz;
 			return this;
 		}
 
-		public AutoCloseInput reset(InputStream stream, int buffer, Class<?> clazz) {
-			this.stream = new BufferedInputStream(stream, buffer);
+		public AutoCloseInput reset(ByteBuf buffer, Class<?> clazz) {
+			this.stream = this.buffer.reset(buffer);
 			this.clazz = clazz;
 			return this;
 		}
@@ -130,6 +161,7 @@ public class JacksonSerial implements SerialInput, SerialOutput {
 		@Override
 		public void close() throws IOException {
 			IOUtils.closeQuietly(this.stream);
+			this.stream = null;
 		}
 
 		public Object readObject() throws Exception {
@@ -137,24 +169,41 @@ public class JacksonSerial implements SerialInput, SerialOutput {
 		}
 	}
 
+	/**
+	 * 线程内复用字节数组
+	 * 
+	 * @author kim
+	 * 
+	 * 2016年4月18日
+	 */
 	private class AutoCloseOutput implements Closeable {
 
-		private ByteArrayOutputStream arrays;
+		private final ArraysOutputStream arrays = new ArraysOutputStream(JacksonSerial.BUFFER);
 
+		/**
+		 * 外部Stream, 为Null则写入字节数组
+		 */
 		private OutputStream stream;
 
 		private Class<?> clazz;
 
 		public AutoCloseOutput reset(Class<?> clazz) {
-			this.stream = new BufferedOutputStream(this.arrays = new ByteArrayOutputStream(JacksonSerial.BUFFER), JacksonSerial.BUFFER);
 			this.clazz = clazz;
+			this.stream = null;
 			return this;
 		}
 
+		/**
+		 * 外部Stream, Jackson内部已缓冲(无需BufferedOutputStream)
+		 * 
+		 * @param stream
+		 * @param buffer
+		 * @param clazz
+		 * @return
+		 */
 		public AutoCloseOutput reset(OutputStream stream, int buffer, Class<?> clazz) {
-			this.stream = new BufferedOutputStream(this.stream = stream, buffer);
+			this.stream = stream;
 			this.clazz = clazz;
-			this.arrays = null;
 			return this;
 		}
 
@@ -164,18 +213,19 @@ public class JacksonSerial implements SerialInput, SerialOutput {
 		 * @return
 		 */
 		public byte[] arrays() {
-			return this.arrays != null ? this.arrays.toByteArray() : JacksonSerial.EMPTY;
+			return this.stream == null ? this.arrays.toByteArray() : JacksonSerial.EMPTY;
 		}
 
 		@Override
 		public void close() throws IOException {
 			// Output不会级联关闭
-			IOUtils.closeQuietly(this.arrays);
+			this.arrays.reuse();
 			IOUtils.closeQuietly(this.stream);
+			this.stream = null;
 		}
 
 		public AutoCloseOutput writeObject(Object ob) throws Exception {
-			JacksonSerial.this.serializers.get(this.clazz).write(this.stream, ob);
+			JacksonSerial.this.serializers.get(this.clazz).write(this.stream != null ? this.stream : this.arrays, ob);
 			return this;
 		}
 	}
@@ -211,6 +261,8 @@ public class JacksonSerial implements SerialInput, SerialOutput {
 		public void write(OutputStream output, Object ob) throws Exception;
 
 		public <T> T read(InputStream input, Class<T> clazz) throws Exception;
+
+		public <T> T read(byte[] data, int offset, int length, Class<T> clazz) throws Exception;
 	}
 
 	private class ObjectSerializer implements Serializer {
@@ -224,6 +276,11 @@ public class JacksonSerial implements SerialInput, SerialOutput {
 		public <T> T read(InputStream input, Class<T> clazz) throws Exception {
 			return JacksonSerial.MAPPER.readValue(input, clazz);
 		}
+
+		@Override
+		public <T> T read(byte[] data, int offset, int length, Class<T> clazz) throws Exception {
+			return JacksonSerial.MAPPER.readValue(data, offset, length, clazz);
+		}
 	}
 
 	private class RequestSerializer implements Serializer {
@@ -237,6 +294,11 @@ public class JacksonSerial implements SerialInput, SerialOutput {
 		public <T> T read(InputStream input, Class<T> clazz) throws Exception {
 			return JacksonSerial.READER_REQUEST.readValue(input);
 		}
+
+		@Override
+		public <T> T read(byte[] data, int offset, int length, Class<T> clazz) throws Exception {
+			return JacksonSerial.READER_REQUEST.readValue(data, offset, length);
+		}
 	}
 
 	private class ResponseSerializer implements Serializer {
@@ -250,5 +312,10 @@ public class JacksonSerial implements SerialInput, SerialOutput {
 		public <T> T read(InputStream input, Class<T> clazz) throws Exception {
 			return JacksonSerial.READER_RESPONSE.readValue(input);
 		}
+
+		@Override
+		public <T> T read(byte[] data, int offset, int length, Class<T> clazz) throws Exception {
+			return JacksonSerial.READER_RESPONSE.readValue(data, offset, length);
+		}
 	}
 }
@@ -19,6 +19,7 @@ import com.kepler.protocol.Request;
 import com.kepler.service.Exported;
 import com.kepler.service.ExportedContext;
 import com.kepler.service.Service;
+import com.kepler.service.exported.MethodDispatcher.Dispatch;
 
 /**
  * @author kim 2015年7月8日
@@ -54,7 +55,7 @@ public class DefaultContext implements ExportedContext, ExportedServices, Export
 	public void exported(Service service, Object instance) {
 		this.valid(service);
 		this.services.put(service, instance);
-		this.invokers.put(service, new ProxyInvoker(instance));
+		this.invokers.put(service, new ProxyInvoker(service, instance));
 	}
 
 	private void valid(Service service) {
@@ -65,11 +66,27 @@ public class DefaultContext implements ExportedContext, ExportedServices, Export
 
 	private class ProxyInvoker implements Invoker {
 
+		/**
+		 * 调度表, 无法加载服务接口则为Null(使用方法名及参数类型查找)
+		 */
+		private final MethodDispatcher dispatcher;
+
 		private final Object service;
 
-		private ProxyInvoker(Object service) {
+		private ProxyInvoker(Service service, Object instance) {
 			super();
-			this.service = service;
+			this.service = instance;
+			this.dispatcher = this.dispatcher(service, instance);
+		}
+
+		private MethodDispatcher dispatcher(Service service, Object instance) {
+			try {
+				return new MethodDispatcher(Service.clazz(service), instance);
+			} catch (Throwable throwable) {
+				// 无法加载服务接口则仅使用方法名及参数类型查找
+				DefaultContext.LOGGER.warn(throwable.getMessage(), throwable);
+				return null;
+			}
 		}
 
 		@Override
@@ -88,10 +105,11 @@ public class DefaultContext implements ExportedContext, ExportedServices, Export
 		 * @throws Throwable
 		 */
 		private Object invoke4method(Request request) throws Throwable {
-			// MethodUtils.getMatchingAccessibleMethod(request.service(), request.method(), request.types()) 获取指定Method
-			Method method = MethodUtils.getMatchingAccessibleMethod(Service.clazz(request.service()), request.method(), request.types());
+			Dispatch dispatch = this.dispatcher != null ? this.dispatcher.dispatch(request) : null;
+			// MethodUtils.getMatchingAccessibleMethod(request.service(), request.method(), request.types()) 获取指定Method(调度表未命中)
+			Method method = dispatch != null ? dispatch.method() : MethodUtils.getMatchingAccessibleMethod(Service.clazz(request.service()), request.method(), request.types());
 			try {
-				return this.response(request, this.exists(request, method).invoke(this.service, request.args()));
+				return this.response(request, dispatch != null ? dispatch.invoke(request.args()) : this.exists(request, method).invoke(this.service, request.args()));
 			} catch (NoSuchMethodException exception) {
 				// 直接抛出, 提供客户端定位
 				DefaultContext.LOGGER.error(exception.getMessage(), exception);
@@ -0,0 +1,150 @@
+package com.kepler.service.exported;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.cglib.reflect.FastClass;
+
+import com.kepler.config.PropertiesUtils;
+import com.kepler.protocol.Request;
+
+/**
+ * 服务调度表, 发布时预先计算(运行时不再查找Method)
+ * 
+ * 1, 方法名 + 参数类型 -> Dispatch
+ * 2, 使用FastClass直接调用实现类方法, 无法生成FastClass(如JDK Proxy)则使用Method.invoke
+ * 
+ * @author kim
+ * 
+ * 2016年4月18日
+ */
+public class MethodDispatcher {
+
+	/**
+	 * 是否使用FastClass
+	 */
+	private static final boolean FASTCLASS = PropertiesUtils.get(MethodDispatcher.class.getName().toLowerCase() + ".fastclass", true);
+
+	private static final Log LOGGER = LogFactory.getLog(MethodDispatcher.class);
+
+	private final Map<Signature, Dispatch> signatures = new HashMap<Signature, Dispatch>();
+
+	private final Object instance;
+
+	/**
+	 * @param clazz 服务接口
+	 * @param instance 服务实现
+	 */
+	public MethodDispatcher(Class<?> clazz, Object instance) {
+		super();
+		this.instance = instance;
+		FastClass fast = this.fast(instance);
+		for (Method each : clazz.getMethods()) {
+			this.signatures.put(new Signature(each.getName(), each.getParameterTypes()), new Dispatch(each, fast, this.index(fast, each)));
+		}
+	}
+
+	private FastClass fast(Object instance) {
+		try {
+			return MethodDispatcher.FASTCLASS ? FastClass.create(instance.getClass()) : null;
+		} catch (Throwable throwable) {
+			MethodDispatcher.LOGGER.warn("FastClass disabled for " + instance.getClass() + " (" + throwable.getMessage() + ")");
+			return null;
+		}
+	}
+
+	/**
+	 * 实现类方法在FastClass中对应下标
+	 * 
+	 * @param fast
+	 * @param method
+	 * @return 不存在则返回-1
+	 */
+	private int index(FastClass fast, Method method) {
+		return fast != null ? fast.getIndex(method.getName(), method.getParameterTypes()) : -1;
+	}
+
+	/**
+	 * 使用方法名及参数类型定位
+	 * 
+	 * @param request
+	 * @return 未定位则返回Null
+	 */
+	public Dispatch dispatch(Request request) {
+		return this.signatures.get(new Signature(request.method(), request.types()));
+	}
+
+	/**
+	 * 服务方法调用
+	 * 
+	 * @author kim
+	 * 
+	 * 2016年4月18日
+	 */
+	public class Dispatch {
+
+		/**
+		 * 服务接口方法(声明异常)
+		 */
+		private final Method method;
+
+		private final FastClass fast;
+
+		/**
+		 * FastClass下标, -1则使用Method.invoke
+		 */
+		private final int index;
+
+		private Dispatch(Method method, FastClass fast, int index) {
+			super();
+			this.method = method;
+			this.index = index;
+			this.fast = index != -1 ? fast : null;
+		}
+
+		public Method method() {
+			return this.method;
+		}
+
+		/**
+		 * @param args
+		 * @return
+		 * @throws Throwable InvocationTargetException包装服务端异常(与Method.invoke一致)
+		 */
+		public Object invoke(Object[] args) throws Throwable {
+			return this.fast != null ? this.fast.invoke(this.index, MethodDispatcher.this.instance, args) : this.method.invoke(MethodDispatcher.this.instance, args);
+		}
+	}
+
+	private static class Signature {
+
+		private final Class<?>[] types;
+
+		private final String name;
+
+		private final int hash;
+
+		private Signature(String name, Class<?>[] types) {
+			super();
+			this.name = name;
+			this.types = types != null ? types : new Class<?>[0];
+			this.hash = this.name.hashCode() * 31 + Arrays.hashCode(this.types);
+		}
+
+		public int hashCode() {
+			return this.hash;
+		}
+
+		public boolean equals(Object ob) {
+			if (!(ob instanceof Signature)) {
+				return false;
+			}
+			Signature signature = Signature.class.cast(ob);
+			return this.name.equals(signature.name) && Arrays.equals(this.types, signature.types);
+		}
+	}
+}
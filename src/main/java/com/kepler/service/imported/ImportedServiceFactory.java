@@ -19,12 +19,14 @@ import com.kepler.header.HeadersContext;
 import com.kepler.header.HeadersProcessor;
 import com.kepler.id.IDGenerators;
 import com.kepler.invoker.Invoker;
+import com.kepler.protocol.Request;
 import com.kepler.protocol.RequestFactory;
 import com.kepler.protocol.RequestValidation;
 import com.kepler.serial.SerialID;
 import com.kepler.serial.Serials;
 import com.kepler.service.Imported;
 import com.kepler.service.Service;
+import com.kepler.stream.StreamContext;
 
 /**
  * @author kim 2015年7月8日
@@ -132,7 +134,14 @@ public class ImportedServiceFactory<T> implements FactoryBean<T> {
 			// PropertiesUtils.profile(ImportedServiceFactory.this.profile.profile(service), SerialID.Serial.SERIAL_KEY, SerialID.Serial.SERIAL_VAL)), 获取与Service相关的序列化策略, 并将String转换为对应Byte
 			byte serial = SerialID.DYAMIC ? ImportedServiceFactory.this.serials.output(PropertiesUtils.profile(ImportedServiceFactory.this.profile.profile(ImportedServiceFactory.this.service), SerialID.SERIAL_KEY, SerialID.SERIAL_VAL)) : ImportedServiceFactory.this.serials.output(SerialID.SERIAL_VAL);
 			// 如果返回类型为Future(Future.class.isAssignableFrom(method.getReturnType()))则标记为Async
-			return ImportedServiceFactory.this.invoker.invoke(ImportedServiceFactory.this.validation.valid(ImportedServiceFactory.this.factory.request(headers, ImportedServiceFactory.this.service, method, Future.class.isAssignableFrom(method.getReturnType()), args, ImportedServiceFactory.this.generators.get(ImportedServiceFactory.this.service, method).generate(), serial)));
+			Request request = ImportedServiceFactory.this.factory.request(headers, ImportedServiceFactory.this.service, method, Future.class.isAssignableFrom(method.getReturnType()), args, ImportedServiceFactory.this.generators.get(ImportedServiceFactory.this.service, method).generate(), serial);
+			// 如果返回类型为Iterator则声明流式响应(初始Credit), 否则移除(Headers为线程上下文, 避免残留至后续或嵌套调用)
+			if (StreamContext.streaming(ImportedServiceFactory.this.profile, ImportedServiceFactory.this.service, method)) {
+				request.put(StreamContext.STREAM, String.valueOf(StreamContext.WINDOW));
+			} else if (request.headers() != null) {
+				request.headers().delete(StreamContext.STREAM);
+			}
+			return ImportedServiceFactory.this.invoker.invoke(ImportedServiceFactory.this.validation.valid(request));
 		}
 	}
 }
@@ -0,0 +1,43 @@
+package com.kepler.stream;
+
+import java.io.Serializable;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.kepler.org.apache.commons.lang.builder.ToStringBuilder;
+
+/**
+ * 流式响应分片, 同一请求的所有分片共享ACK
+ * 
+ * @author kim
+ * 
+ * 2016年4月18日
+ */
+public class Chunk implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private final Object[] elements;
+
+	/**
+	 * 是否为最后分片
+	 */
+	private final boolean end;
+
+	public Chunk(@JsonProperty("elements") Object[] elements, @JsonProperty("end") boolean end) {
+		super();
+		this.elements = elements;
+		this.end = end;
+	}
+
+	public Object[] elements() {
+		return this.elements;
+	}
+
+	public boolean end() {
+		return this.end;
+	}
+
+	public String toString() {
+		return ToStringBuilder.reflectionToString(this);
+	}
+}
@@ -0,0 +1,36 @@
+package com.kepler.stream;
+
+import java.io.Serializable;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.kepler.org.apache.commons.lang.builder.ToStringBuilder;
+
+/**
+ * 分片发送参数占位, Server使用已接收分片替换
+ * 
+ * @author kim
+ * 
+ * 2016年4月18日
+ */
+public class Fragment implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * 分片ID(通道内唯一)
+	 */
+	private final int id;
+
+	public Fragment(@JsonProperty("id") int id) {
+		super();
+		this.id = id;
+	}
+
+	public int id() {
+		return this.id;
+	}
+
+	public String toString() {
+		return ToStringBuilder.reflectionToString(this);
+	}
+}
@@ -0,0 +1,115 @@
+package com.kepler.stream;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+
+import java.io.InputStream;
+
+import com.kepler.config.Profile;
+import com.kepler.config.PropertiesUtils;
+import com.kepler.connection.handler.CodecHeader;
+import com.kepler.service.Service;
+
+/**
+ * 大参数(byte[]/InputStream)分片发送
+ * 
+ * 1, Client在Request之前发送分片帧, Request中参数替换为Fragment占位
+ * 2, 分片帧: 黏包长度 + FRAGMENT(占用序列化策略字节) + ID(int) + 总长度(int, 未知为-1) + 数据
+ * 3, 分片帧逐个写入, 同一通道的其他请求可穿插发送
+ * 4, Server按ID重组, 参数声明为InputStream则包装为流
+ * 5, 默认关闭, 旧版本Server无法解码分片帧, 需确认Server已升级后按服务开启
+ * 
+ * @author kim
+ * 
+ * 2016年4月18日
+ */
+public class FragmentContext {
+
+	/**
+	 * 分片阀值(字节), 小于0则不分片(InputStream同样不分片), 默认关闭
+	 */
+	private static final String THRESHOLD_KEY = FragmentContext.class.getName().toLowerCase() + ".threshold";
+
+	private static final int THRESHOLD_DEF = PropertiesUtils.get(FragmentContext.THRESHOLD_KEY, -1);
+
+	/**
+	 * 每个分片最大字节
+	 */
+	public static final int PART = Math.max(0x400, PropertiesUtils.get(FragmentContext.class.getName().toLowerCase() + ".part", 0x10000));
+
+	/**
+	 * 单个参数重组后最大字节(Server)
+	 */
+	public static final int MAX = PropertiesUtils.get(FragmentContext.class.getName().toLowerCase() + ".max", 0x4000000);
+
+	/**
+	 * 单个通道最大未完成ID数量(Server)
+	 */
+	public static final int PENDING = PropertiesUtils.get(FragmentContext.class.getName().toLowerCase() + ".pending", 16);
+
+	/**
+	 * 单个通道未完成分片最大字节(Server)
+	 */
+	public static final long BYTES = PropertiesUtils.get(FragmentContext.class.getName().toLowerCase() + ".bytes", 0x8000000L);
+
+	/**
+	 * 未完成分片最大空闲时间(毫秒, Server), 超时则丢弃
+	 */
+	public static final long EXPIRE = PropertiesUtils.get(FragmentContext.class.getName().toLowerCase() + ".expire", 60000L);
+
+	/**
+	 * 分片帧标记(序列化策略保留值)
+	 */
+	private static final byte FRAGMENT = 0x7C;
+
+	/**
+	 * FRAGMENT + ID + 总长度
+	 */
+	private static final int HEADER = 1 + 4 + 4;
+
+	public static int threshold(Profile profile, Service service) {
+		return PropertiesUtils.profile(profile.profile(service), FragmentContext.THRESHOLD_KEY, FragmentContext.THRESHOLD_DEF);
+	}
+
+	/**
+	 * 参数是否需要分片发送
+	 * 
+	 * @param arg
+	 * @param threshold
+	 * @return
+	 */
+	public static boolean fragment(Object arg, int threshold) {
+		if (threshold < 0) {
+			return false;
+		}
+		return arg instanceof InputStream || (arg instanceof byte[] && byte[].class.cast(arg).length >= threshold);
+	}
+
+	/**
+	 * 构建分片帧
+	 * 
+	 * @param allocator
+	 * @param id
+	 * @param total
+	 * @param bytes
+	 * @param offset
+	 * @param length
+	 * @return
+	 */
+	public static ByteBuf part(ByteBufAllocator allocator, int id, int total, byte[] bytes, int offset, int length) {
+		ByteBuf buffer = allocator.ioBuffer(CodecHeader.DEFAULT + FragmentContext.HEADER + length);
+		buffer.writerIndex(CodecHeader.DEFAULT);
+		buffer.writeByte(FragmentContext.FRAGMENT).writeInt(id).writeInt(total).writeBytes(bytes, offset, length);
+		return CodecHeader.header(buffer, FragmentContext.HEADER + length);
+	}
+
+	/**
+	 * 是否为分片帧(已去除黏包长度)
+	 * 
+	 * @param buffer
+	 * @return
+	 */
+	public static boolean part(ByteBuf buffer) {
+		return buffer.isReadable() && buffer.getByte(buffer.readerIndex()) == FragmentContext.FRAGMENT;
+	}
+}
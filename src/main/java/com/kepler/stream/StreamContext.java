@@ -0,0 +1,147 @@
+package com.kepler.stream;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+
+import java.lang.reflect.Method;
+import java.util.Iterator;
+
+import com.kepler.config.Profile;
+import com.kepler.config.PropertiesUtils;
+import com.kepler.connection.handler.CodecHeader;
+import com.kepler.protocol.Request;
+import com.kepler.protocol.Response;
+import com.kepler.service.Service;
+
+/**
+ * 流式响应(服务方法返回java.util.Iterator)
+ * 
+ * 1, Client在Header中声明初始Credit(分片数量), 未声明则按普通响应处理
+ * 2, Server每发送1个分片消耗1个Credit, Credit耗尽则等待
+ * 3, Client每消费分片后通过Credit帧归还: 黏包长度 + CREDIT(占用序列化策略字节) + ACK长度(byte) + ACK + Credit(int)
+ * 4, Client放弃消费(Close)时发送Credit为CANCEL的Credit帧, Server终止发送(旧版本忽略非正数Credit)
+ * 
+ * @author kim
+ * 
+ * 2016年4月18日
+ */
+public class StreamContext {
+
+	/**
+	 * Header Key, 初始Credit
+	 */
+	public static final String STREAM = "stream";
+
+	/**
+	 * 是否开启流式响应(Client)
+	 */
+	private static final String ENABLED_KEY = StreamContext.class.getName().toLowerCase() + ".enabled";
+
+	private static final boolean ENABLED_DEF = PropertiesUtils.get(StreamContext.ENABLED_KEY, true);
+
+	/**
+	 * 每个分片最大元素数量(Server)
+	 */
+	private static final String CHUNK_KEY = StreamContext.class.getName().toLowerCase() + ".chunk";
+
+	private static final int CHUNK_DEF = PropertiesUtils.get(StreamContext.CHUNK_KEY, 256);
+
+	/**
+	 * 初始Credit(Client缓存分片上限)
+	 */
+	public static final int WINDOW = Math.max(1, PropertiesUtils.get(StreamContext.class.getName().toLowerCase() + ".window", 4));
+
+	/**
+	 * 等待分片/Credit最大时间(毫秒)
+	 */
+	public static final long IDLE = PropertiesUtils.get(StreamContext.class.getName().toLowerCase() + ".idle", 60000L);
+
+	/**
+	 * Credit帧标记(序列化策略保留值)
+	 */
+	private static final byte CREDIT = 0x7D;
+
+	/**
+	 * 取消流式响应(Credit帧)
+	 */
+	public static final int CANCEL = -1;
+
+	/**
+	 * 指定方法及服务是否使用流式响应
+	 * 
+	 * @param profile
+	 * @param service
+	 * @param method
+	 * @return
+	 */
+	public static boolean streaming(Profile profile, Service service, Method method) {
+		return Iterator.class.equals(method.getReturnType()) && PropertiesUtils.profile(profile.profile(service), StreamContext.ENABLED_KEY, StreamContext.ENABLED_DEF);
+	}
+
+	/**
+	 * Client是否声明流式响应且服务返回Iterator
+	 * 
+	 * @param credits 初始Credit(服务执行前获取, 服务内嵌套调用共享线程Headers)
+	 * @param response
+	 * @return
+	 */
+	public static boolean streaming(int credits, Response response) {
+		return response.valid() && response.response() instanceof Iterator && credits > 0;
+	}
+
+	/**
+	 * 初始Credit, 未声明则返回0
+	 * 
+	 * @param request
+	 * @return
+	 */
+	public static int credits(Request request) {
+		String credits = request.get(StreamContext.STREAM);
+		try {
+			return credits != null ? Math.max(0, Integer.parseInt(credits)) : 0;
+		} catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+
+	public static int chunk(Profile profile, Service service) {
+		return Math.max(1, PropertiesUtils.profile(profile.profile(service), StreamContext.CHUNK_KEY, StreamContext.CHUNK_DEF));
+	}
+
+	/**
+	 * 构建Credit帧
+	 * 
+	 * @param allocator
+	 * @param ack
+	 * @param credits
+	 * @return
+	 */
+	public static ByteBuf credit(ByteBufAllocator allocator, byte[] ack, int credits) {
+		int length = 1 + 1 + ack.length + 4;
+		ByteBuf buffer = allocator.ioBuffer(CodecHeader.DEFAULT + length);
+		buffer.writerIndex(CodecHeader.DEFAULT);
+		buffer.writeByte(StreamContext.CREDIT).writeByte(ack.length).writeBytes(ack).writeInt(credits);
+		return CodecHeader.header(buffer, length);
+	}
+
+	/**
+	 * 构建取消帧
+	 * 
+	 * @param allocator
+	 * @param ack
+	 * @return
+	 */
+	public static ByteBuf cancel(ByteBufAllocator allocator, byte[] ack) {
+		return StreamContext.credit(allocator, ack, StreamContext.CANCEL);
+	}
+
+	/**
+	 * 是否为Credit帧(已去除黏包长度)
+	 * 
+	 * @param buffer
+	 * @return
+	 */
+	public static boolean credit(ByteBuf buffer) {
+		return buffer.isReadable() && buffer.getByte(buffer.readerIndex()) == StreamContext.CREDIT;
+	}
+}
@@ -0,0 +1,175 @@
+package com.kepler.stream;
+
+import io.netty.channel.Channel;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import com.kepler.KeplerLocalException;
+import com.kepler.KeplerRemoteException;
+import com.kepler.KeplerTimeoutException;
+import com.kepler.connection.impl.ExceptionListener;
+import com.kepler.protocol.Response;
+import com.kepler.protocol.impl.DefaultResponse;
+
+/**
+ * 流式响应(Client), 按需拉取分片
+ * 
+ * 1, 缓存分片不超过初始Credit(Server耗尽Credit后等待)
+ * 2, 消费分片后归还Credit(累计至窗口一半时发送, 减少Credit帧)
+ * 3, 非线程安全, 由调用线程消费
+ * 4, 未消费完毕需Close(或空闲超时), 通知Server终止发送并释放
+ * 
+ * @author kim
+ * 
+ * 2016年4月18日
+ */
+public class StreamIterator implements Iterator<Object>, Closeable {
+
+	/**
+	 * 已接收分片(EventLoop写入, 调用线程读取)
+	 */
+	private final BlockingQueue<Response> chunks = new LinkedBlockingQueue<Response>();
+
+	/**
+	 * 通道未结束的流式响应(Close时移除)
+	 */
+	private final ConcurrentMap<ByteBuffer, StreamIterator> streams;
+
+	private final Channel channel;
+
+	private final byte[] ack;
+
+	private final byte serial;
+
+	/**
+	 * 当前分片
+	 */
+	private Object[] elements;
+
+	private int index;
+
+	/**
+	 * 已消费尚未归还的Credit
+	 */
+	private int consumed;
+
+	/**
+	 * 是否已接收最后分片
+	 */
+	private boolean end;
+
+	/**
+	 * 是否已Close
+	 */
+	private boolean closed;
+
+	public StreamIterator(ConcurrentMap<ByteBuffer, StreamIterator> streams, Channel channel, byte serial, byte[] ack) {
+		super();
+		this.streams = streams;
+		this.channel = channel;
+		this.serial = serial;
+		this.ack = ack;
+	}
+
+	/**
+	 * 接收分片(EventLoop线程)
+	 * 
+	 * @param response
+	 * @return 是否为最后分片(结束或异常)
+	 */
+	public boolean offer(Response response) {
+		this.chunks.offer(response);
+		return !response.valid() || !(response.response() instanceof Chunk) || Chunk.class.cast(response.response()).end();
+	}
+
+	/**
+	 * 异常结束(如通道关闭)
+	 * 
+	 * @param throwable
+	 */
+	public void failure(Throwable throwable) {
+		this.chunks.offer(new DefaultResponse(this.serial, this.ack, throwable));
+	}
+
+	@Override
+	public boolean hasNext() {
+		while (!this.end && (this.elements == null || this.index >= this.elements.length)) {
+			this.chunk();
+		}
+		return this.elements != null && this.index < this.elements.length;
+	}
+
+	@Override
+	public Object next() {
+		if (!this.hasNext()) {
+			throw new NoSuchElementException();
+		}
+		return this.elements[this.index++];
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * 拉取下一分片
+	 */
+	private void chunk() {
+		Response response;
+		try {
+			response = this.chunks.poll(StreamContext.IDLE, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new KeplerLocalException(e);
+		}
+		if (response == null) {
+			this.close();
+			throw new KeplerTimeoutException("Stream (" + this.channel.remoteAddress() + ") idle for " + StreamContext.IDLE + "ms ... ");
+		}
+		if (!response.valid()) {
+			this.end = true;
+			throw KeplerRemoteException.class.isAssignableFrom(response.throwable().getClass()) ? KeplerRemoteException.class.cast(response.throwable()) : new KeplerRemoteException(response.throwable());
+		}
+		Chunk chunk = Chunk.class.cast(response.response());
+		this.elements = chunk.elements();
+		this.index = 0;
+		this.end = chunk.end();
+		this.credit();
+	}
+
+	/**
+	 * 放弃剩余分片, 通知Server终止(已接收最后分片则仅标记结束)
+	 */
+	@Override
+	public void close() {
+		if (this.closed) {
+			return;
+		}
+		this.closed = true;
+		this.elements = null;
+		if (!this.end) {
+			this.end = true;
+			this.streams.remove(ByteBuffer.wrap(this.ack), this);
+			this.channel.writeAndFlush(StreamContext.cancel(this.channel.alloc(), this.ack)).addListener(ExceptionListener.TRACE);
+		}
+		this.chunks.clear();
+	}
+
+	/**
+	 * 归还Credit
+	 */
+	private void credit() {
+		if (!this.end && ++this.consumed >= Math.max(1, StreamContext.WINDOW >> 1)) {
+			this.channel.writeAndFlush(StreamContext.credit(this.channel.alloc(), this.ack, this.consumed)).addListener(ExceptionListener.TRACE);
+			this.consumed = 0;
+		}
+	}
+}
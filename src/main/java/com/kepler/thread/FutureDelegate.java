@@ -1,6 +1,8 @@
 package com.kepler.thread;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
@@ -17,7 +19,7 @@ import com.kepler.KeplerLocalException;
  * 
  * @author kim 2016年1月15日
  */
-public class FutureDelegate implements Serializable, Future<Object> {
+public class FutureDelegate implements Serializable, ListenableFuture<Object> {
 
 	private static final Log LOGGER = LogFactory.getLog(FutureDelegate.class);
 
@@ -40,6 +42,11 @@ public class FutureDelegate implements Serializable, Future<Object> {
 	 */
 	volatile private boolean release;
 
+	/**
+	 * 绑定前注册的回调(由this保护)
+	 */
+	transient private List<FutureListener> listeners;
+
 	/**
 	 * 异常校验
 	 * 
@@ -75,26 +82,81 @@ public class FutureDelegate implements Serializable, Future<Object> {
 	}
 
 	public Future<Object> release(Throwable throwable) {
+		List<FutureListener> listeners;
 		synchronized (this) {
 			// 标记释放
 			this.release = true;
 			// 标记异常
 			this.throwable = throwable;
 			this.notifyAll();
+			listeners = this.listeners4release();
+		}
+		// 已释放, 立即回调
+		if (listeners != null) {
+			for (FutureListener each : listeners) {
+				each.complete(this);
+			}
 		}
 		return this.actual;
 	}
 
 	public Future<Object> binding(Future<Object> future) {
+		List<FutureListener> listeners;
 		synchronized (this) {
 			this.actual = future;
 			// 标记绑定
 			this.binding = true;
 			this.notifyAll();
+			listeners = this.listeners4release();
+		}
+		// 转移至实际Future
+		if (listeners != null) {
+			for (FutureListener each : listeners) {
+				this.listener4actual(each);
+			}
 		}
 		return this.actual;
 	}
 
+	public void listener(FutureListener listener) {
+		synchronized (this) {
+			// 尚未绑定, 尚未释放则暂存
+			if (!this.binding && !this.release) {
+				(this.listeners != null ? this.listeners : (this.listeners = new ArrayList<FutureListener>(2))).add(listener);
+				return;
+			}
+		}
+		if (this.release) {
+			listener.complete(this);
+		} else {
+			this.listener4actual(listener);
+		}
+	}
+
+	/**
+	 * 实际Future不支持回调时立即回调(由回调方获取结果)
+	 * 
+	 * @param listener
+	 */
+	private void listener4actual(FutureListener listener) {
+		if (this.actual instanceof ListenableFuture) {
+			ListenableFuture.class.cast(this.actual).listener(listener);
+		} else {
+			listener.complete(this);
+		}
+	}
+
+	/**
+	 * 获取并清空暂存回调(需持有this)
+	 * 
+	 * @return
+	 */
+	private List<FutureListener> listeners4release() {
+		List<FutureListener> listeners = this.listeners;
+		this.listeners = null;
+		return listeners;
+	}
+
 	@Override
 	public boolean cancel(boolean interrupt) {
 		return this.actual == null ? false : this.actual.cancel(interrupt);
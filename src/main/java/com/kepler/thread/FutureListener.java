@@ -0,0 +1,20 @@
+package com.kepler.thread;
+
+import java.util.concurrent.Future;
+
+/**
+ * Future完成(完成, 超时, 异常或取消)时回调
+ * 
+ * @author kim
+ * 
+ * 2016年4月14日
+ */
+public interface FutureListener {
+
+	/**
+	 * 回调线程为完成Future的线程(如EventLoop, 时间轮), 禁止堵塞
+	 * 
+	 * @param future
+	 */
+	public void complete(Future<?> future);
+}
@@ -1,7 +1,6 @@
 package com.kepler.thread;
 
 import java.io.Serializable;
-import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -9,7 +8,7 @@ import java.util.concurrent.TimeUnit;
  * 
  * @author kim 2016年1月15日
  */
-public class FutureWrapper<T> implements Serializable, Future<T> {
+public class FutureWrapper<T> implements Serializable, ListenableFuture<T> {
 
 	private static final long serialVersionUID = 1L;
 
@@ -35,6 +34,12 @@ public class FutureWrapper<T> implements Serializable, Future<T> {
 		return true;
 	}
 
+	@Override
+	public void listener(FutureListener listener) {
+		// 总是已完成
+		listener.complete(this);
+	}
+
 	@Override
 	public T get() {
 		return this.future;
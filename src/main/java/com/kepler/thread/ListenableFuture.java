@@ -0,0 +1,20 @@
+package com.kepler.thread;
+
+import java.util.concurrent.Future;
+
+/**
+ * 支持回调的Future, 等待结果时无需占用线程
+ * 
+ * @author kim
+ * 
+ * 2016年4月14日
+ */
+public interface ListenableFuture<T> extends Future<T> {
+
+	/**
+	 * 注册回调, 如果已完成则在当前线程立即回调
+	 * 
+	 * @param listener
+	 */
+	public void listener(FutureListener listener);
+}
@@ -7,11 +7,120 @@ package com.kepler.traffic;
  */
 public interface Traffic {
 
+	/**
+	 * 批量发送原因
+	 * 
+	 * @author kim
+	 * 
+	 * 2016年4月18日
+	 */
+	public enum Batch {
+
+		/**
+		 * 达到最大消息数量
+		 */
+		MESSAGES,
+
+		/**
+		 * 达到最大字节
+		 */
+		BYTES,
+
+		/**
+		 * 窗口到期
+		 */
+		WINDOW,
+
+		/**
+		 * 上游Flush(未指定窗口)
+		 */
+		FLUSH,
+
+		/**
+		 * 强制(大消息, 关闭等)
+		 */
+		FORCE;
+	}
+
 	public void input(long bytes);
 
 	public void output(long bytes);
 
+	/**
+	 * 压缩
+	 * 
+	 * @param before 压缩前字节
+	 * @param after 压缩后字节
+	 * @param nanos 耗时(纳秒)
+	 */
+	public void compress(long before, long after, long nanos);
+
+	/**
+	 * 解压
+	 * 
+	 * @param nanos 耗时(纳秒)
+	 */
+	public void decompress(long nanos);
+
+	/**
+	 * 批量发送
+	 * 
+	 * @param messages 消息数量
+	 * @param reason 原因
+	 */
+	public void batch(int messages, Batch reason);
+
 	public long getInputAndReset();
 
 	public long getOutputAndReset();
+
+	/**
+	 * 压缩前字节
+	 * 
+	 * @return
+	 */
+	public long getCompressBeforeAndReset();
+
+	/**
+	 * 压缩后字节
+	 * 
+	 * @return
+	 */
+	public long getCompressAfterAndReset();
+
+	/**
+	 * 压缩耗时(纳秒)
+	 * 
+	 * @return
+	 */
+	public long getCompressTimeAndReset();
+
+	/**
+	 * 解压耗时(纳秒)
+	 * 
+	 * @return
+	 */
+	public long getDecompressTimeAndReset();
+
+	/**
+	 * 批量发送次数
+	 * 
+	 * @return
+	 */
+	public long getBatchAndReset();
+
+	/**
+	 * 批量发送消息数量
+	 * 
+	 * @return
+	 */
+	public long getBatchMessagesAndReset();
+
+	/**
+	 * 指定原因批量发送次数
+	 * 
+	 * @param reason
+	 * @return
+	 */
+	public long getBatchAndReset(Batch reason);
 }
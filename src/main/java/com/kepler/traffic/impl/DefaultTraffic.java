@@ -1,8 +1,10 @@
 package com.kepler.traffic.impl;
 
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 import com.kepler.traffic.Traffic;
+import com.kepler.traffic.Traffic.Batch;
 
 /**
  * @author kim 2016年1月7日
@@ -13,6 +15,20 @@ public class DefaultTraffic implements Traffic {
 
 	private final AtomicLong input = new AtomicLong();
 
+	private final AtomicLong compress4before = new AtomicLong();
+
+	private final AtomicLong compress4after = new AtomicLong();
+
+	private final AtomicLong compress4time = new AtomicLong();
+
+	private final AtomicLong decompress4time = new AtomicLong();
+
+	private final AtomicLong batch4count = new AtomicLong();
+
+	private final AtomicLong batch4messages = new AtomicLong();
+
+	private final AtomicLongArray batch4reasons = new AtomicLongArray(Batch.values().length);
+
 	@Override
 	public void input(long bytes) {
 		this.input.addAndGet(bytes);
@@ -23,6 +39,25 @@ public class DefaultTraffic implements Traffic {
 		this.output.addAndGet(bytes);
 	}
 
+	@Override
+	public void compress(long before, long after, long nanos) {
+		this.compress4before.addAndGet(before);
+		this.compress4after.addAndGet(after);
+		this.compress4time.addAndGet(nanos);
+	}
+
+	@Override
+	public void decompress(long nanos) {
+		this.decompress4time.addAndGet(nanos);
+	}
+
+	@Override
+	public void batch(int messages, Batch reason) {
+		this.batch4count.incrementAndGet();
+		this.batch4messages.addAndGet(messages);
+		this.batch4reasons.incrementAndGet(reason.ordinal());
+	}
+
 	public long getInputAndReset() {
 		return this.input.getAndSet(0);
 	}
@@ -30,4 +65,32 @@ public class DefaultTraffic implements Traffic {
 	public long getOutputAndReset() {
 		return this.output.getAndSet(0);
 	}
+
+	public long getCompressBeforeAndReset() {
+		return this.compress4before.getAndSet(0);
+	}
+
+	public long getCompressAfterAndReset() {
+		return this.compress4after.getAndSet(0);
+	}
+
+	public long getCompressTimeAndReset() {
+		return this.compress4time.getAndSet(0);
+	}
+
+	public long getDecompressTimeAndReset() {
+		return this.decompress4time.getAndSet(0);
+	}
+
+	public long getBatchAndReset() {
+		return this.batch4count.getAndSet(0);
+	}
+
+	public long getBatchMessagesAndReset() {
+		return this.batch4messages.getAndSet(0);
+	}
+
+	public long getBatchAndReset(Batch reason) {
+		return this.batch4reasons.getAndSet(reason.ordinal(), 0);
+	}
 }
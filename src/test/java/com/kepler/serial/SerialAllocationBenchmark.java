@@ -0,0 +1,126 @@
+package com.kepler.serial;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.PooledByteBufAllocator;
+
+import java.io.Serializable;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.kepler.protocol.Response;
+import com.kepler.protocol.ResponseFactory;
+import com.kepler.protocol.impl.DefaultRequestFactory;
+import com.kepler.protocol.impl.DefaultResponseFactory;
+import com.kepler.serial.hessian.Hessian2Serial;
+import com.kepler.serial.hessian.HessianSerial;
+import com.kepler.serial.jackson.JacksonSerial;
+
+/**
+ * 序列化单次分配字节(B/call), 基于ThreadMXBean.getThreadAllocatedBytes(HotSpot)
+ * 
+ * 1, 载荷: Response(10个POJO), Jackson直接序列化List
+ * 2, 场景: output(byte[]) / output(OutputStream) / input(Direct ByteBuf)
+ * 3, 运行: mvn test-compile后以test classpath执行main, 可选参数为每轮调用次数(默认200000)
+ * 4, 对比: 在变更前版本(复用Stream之前)执行相同main
+ * 5, JDK 9+需指定--add-opens java.base/java.lang=ALL-UNNAMED --add-opens java.base/java.util=ALL-UNNAMED(Hessian反射)
+ * 
+ * @author kim
+ * 
+ * 2016年4月18日
+ */
+public class SerialAllocationBenchmark {
+
+	private static final com.sun.management.ThreadMXBean MX = com.sun.management.ThreadMXBean.class.cast(ManagementFactory.getThreadMXBean());
+
+	/**
+	 * 首轮预热
+	 */
+	private static final int ROUNDS = 2;
+
+	public static void main(String[] args) throws Exception {
+		int times = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+		ResponseFactory factory = new DefaultResponseFactory();
+		List<User> users = new ArrayList<User>();
+		for (int index = 0; index < 10; index++) {
+			users.add(new User(index));
+		}
+		for (Object each : new Object[] { new HessianSerial(factory, new DefaultRequestFactory()), new Hessian2Serial(factory, new DefaultRequestFactory()), new JacksonSerial() }) {
+			SerialOutput output = SerialOutput.class.cast(each);
+			SerialInput input = SerialInput.class.cast(each);
+			boolean jackson = each instanceof JacksonSerial;
+			Response response = factory.response(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 }, users, output.serial());
+			Class<?> clazz = jackson ? Object.class : Response.class;
+			Object message = jackson ? users : response;
+			long[] allocated = new long[3];
+			for (int round = 0; round < SerialAllocationBenchmark.ROUNDS; round++) {
+				allocated[0] = SerialAllocationBenchmark.output4bytes(output, message, clazz, times);
+				allocated[1] = SerialAllocationBenchmark.output4stream(output, message, clazz, times);
+				allocated[2] = SerialAllocationBenchmark.input4buffer(output, input, message, clazz, times);
+			}
+			System.out.println(output.name() + ": output(byte[]) " + allocated[0] + " B/call, output(stream) " + allocated[1] + " B/call, input(direct) " + allocated[2] + " B/call");
+		}
+	}
+
+	private static long output4bytes(SerialOutput output, Object message, Class<?> clazz, int times) throws Exception {
+		long start = SerialAllocationBenchmark.allocated();
+		for (int index = 0; index < times; index++) {
+			output.output(message, clazz);
+		}
+		return (SerialAllocationBenchmark.allocated() - start) / times;
+	}
+
+	private static long output4stream(SerialOutput output, Object message, Class<?> clazz, int times) throws Exception {
+		long start = SerialAllocationBenchmark.allocated();
+		for (int index = 0; index < times; index++) {
+			ByteBuf buffer = PooledByteBufAllocator.DEFAULT.directBuffer(1024);
+			try {
+				output.output(message, clazz, new ByteBufOutputStream(buffer), 4096);
+			} finally {
+				buffer.release();
+			}
+		}
+		return (SerialAllocationBenchmark.allocated() - start) / times;
+	}
+
+	private static long input4buffer(SerialOutput output, SerialInput input, Object message, Class<?> clazz, int times) throws Exception {
+		ByteBuf source = PooledByteBufAllocator.DEFAULT.directBuffer();
+		try {
+			output.output(message, clazz, new ByteBufOutputStream(source), 4096);
+			long start = SerialAllocationBenchmark.allocated();
+			for (int index = 0; index < times; index++) {
+				input.input(source.duplicate(), clazz);
+			}
+			return (SerialAllocationBenchmark.allocated() - start) / times;
+		} finally {
+			source.release();
+		}
+	}
+
+	private static long allocated() {
+		return SerialAllocationBenchmark.MX.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	public static class User implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		public String name;
+
+		public int age;
+
+		public long id;
+
+		public User() {
+			super();
+		}
+
+		private User(int index) {
+			super();
+			this.name = "user-" + index;
+			this.age = index % 90;
+			this.id = 1000000L + index;
+		}
+	}
+}
@@ -0,0 +1,83 @@
+package com.kepler.service.exported;
+
+import java.lang.reflect.Method;
+
+import com.kepler.org.apache.commons.lang.reflect.MethodUtils;
+import com.kepler.protocol.Request;
+import com.kepler.protocol.impl.DefaultRequestFactory;
+import com.kepler.service.Service;
+import com.kepler.service.exported.MethodDispatcher.Dispatch;
+
+/**
+ * 服务调用单次耗时(ns/call), 对比调度表前后
+ * 
+ * 1, Before: Class.forName + MethodUtils匹配 + Method.invoke(原DefaultContext.invoke4method)
+ * 2, After: MethodDispatcher(调度表 + FastClass)
+ * 3, 运行: mvn test-compile后以test classpath执行main, 可选参数为每轮调用次数(默认2000000)
+ * 4, -Dcom.kepler.service.exported.methoddispatcher.fastclass=false则After仅使用调度表(Method.invoke)
+ * 
+ * @author kim
+ * 
+ * 2016年4月18日
+ */
+public class MethodDispatcherBenchmark {
+
+	private static final int ROUNDS = 5;
+
+	public static void main(String[] args) throws Throwable {
+		int times = args.length > 0 ? Integer.parseInt(args[0]) : 2000000;
+		Echo echo = new EchoImpl();
+		MethodDispatcher dispatcher = new MethodDispatcher(Echo.class, echo);
+		Request request = new DefaultRequestFactory().request(null, new Service(Echo.class.getName(), "0.0.1", ""), "echo", false, new Object[] { "kepler", 1 }, new Class<?>[] { String.class, int.class }, new byte[] { 1 }, (byte) 0);
+		for (int round = 0; round < MethodDispatcherBenchmark.ROUNDS; round++) {
+			long before = MethodDispatcherBenchmark.before(request, echo, times);
+			long after = MethodDispatcherBenchmark.after(request, dispatcher, times);
+			System.out.println("Round " + round + ": before " + before + " ns/call, after " + after + " ns/call");
+		}
+	}
+
+	private static long before(Request request, Echo echo, int times) throws Throwable {
+		Object result = null;
+		long start = System.nanoTime();
+		for (int index = 0; index < times; index++) {
+			Method method = MethodUtils.getMatchingAccessibleMethod(Service.clazz(request.service()), request.method(), request.types());
+			result = method.invoke(echo, request.args());
+		}
+		return MethodDispatcherBenchmark.cost(start, times, result);
+	}
+
+	private static long after(Request request, MethodDispatcher dispatcher, int times) throws Throwable {
+		Object result = null;
+		long start = System.nanoTime();
+		for (int index = 0; index < times; index++) {
+			Dispatch dispatch = dispatcher.dispatch(request);
+			result = dispatch.invoke(request.args());
+		}
+		return MethodDispatcherBenchmark.cost(start, times, result);
+	}
+
+	private static long cost(long start, int times, Object result) {
+		if (result == null) {
+			throw new IllegalStateException();
+		}
+		return (System.nanoTime() - start) / times;
+	}
+
+	public interface Echo {
+
+		public String echo(String message);
+
+		public String echo(String message, int times);
+	}
+
+	private static class EchoImpl implements Echo {
+
+		public String echo(String message) {
+			return message;
+		}
+
+		public String echo(String message, int times) {
+			return times > 1 ? message + times : message;
+		}
+	}
+}